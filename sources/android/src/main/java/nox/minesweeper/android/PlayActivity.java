@@ -57,6 +57,8 @@ public class PlayActivity extends Activity implements DialogInterface.OnClickLis
 
 		private List<Integer> aimedPos; // instead of int[]
 
+		private byte[]  codes = new byte[0]; // display codes of the field, reused.
+
 
 		/**
 		 * Create a new Gameview.
@@ -102,32 +104,38 @@ public class PlayActivity extends Activity implements DialogInterface.OnClickLis
 
 			float[] coords; // coordinations where to paint.
 			float   gap;      // gap between  cells
-			int     mines;    // known mines for the field position
+			int     mines;    // display code for the field position
 			Paint   paintI;   // how to paint.
 			String  text;
 
 			gap = this.getCellGap();
 
+			if (this.codes.length < game.field.size())
+				this.codes = new byte[game.field.size()];
+
+			/*All display codes at once, instead of asking each position.*/
+			game.field.export(0, 0, game.field.getHeight(), game.field.getWidth(), this.codes, 0);
+
 			// TODO offset and padding, scaling and so on.
 			for (int i=0; i<game.field.size(); i++)
 			{
 				coords = this.coords2Pos(this.translateIndex(game, i), gap);
 
-				mines  = game.field.onPosition(i);
+				mines  = this.codes[i];
 
 				paintI = this.paintClosed;
 				text   = null;
 
 				switch (mines)
 				{
-					case Field.VALUE_CLOSED: // do nothing else
+					case Field.CODE_CLOSED: // do nothing else
 						break;
 
-					case Field.VALUE_MINE_ON_POS: // mine display
+					case Field.CODE_MINE: // mine display
 						text = ""+Field.getDisplay(Field.DISPLAY_MINE);
 						break;
 
-					case Field.VALUE_MARKED: // mark display
+					case Field.CODE_MARKED: // mark display
 						text = ""+Field.getDisplay(Field.DISPLAY_MARKED);
 						break;
 
@@ -4,14 +4,18 @@ package nox.minesweeper.desktop;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
 
 
 import nox.minesweeper.logic.*;
@@ -21,10 +25,24 @@ import nox.minesweeper.logic.*;
 /**
  * Class GameField.
  * Graphical representation for games.
+ * The cells are painted into a back buffer, which is kept between repaints:
+ * Only cells changed by a move (see Delta) or under the mouse are painted again.
  */
-class GameField extends Canvas implements MouseListener, MouseMotionListener
+class GameField extends Canvas implements MouseListener, MouseMotionListener, DeltaPublisher.Listener
 {
 	private final static long MARK_TIME_MIN = 10;
+	private final static int  DELTAS_MAX    = 64; // pending deltas, before everything is repainted.
+
+	final static int LARGE = 10000; // fields with more cells show their paint time.
+
+	/*Run listeners on the event dispatch thread, like the painting.*/
+	private final static Executor EDT = new Executor()
+	{
+		@Override public void execute(Runnable r)
+		{
+			EventQueue.invokeLater(r);
+		}
+	};
 
 	private Minesweeper host;
 	private Game game;
@@ -45,6 +63,12 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 
 	private Dimension paintedFieldSize;
 
+	private DeltaPublisher.Subscription changes; // deltas of the game.
+	private BitSet   dirty;      // cells to paint again.
+	private boolean  dirtyAll;   // paint all cells again.
+	private long     paintTime;  // duration of the last paint (nanos).
+	private byte[]   codes = new byte[0]; // display codes of a row, reused.
+
 
 	/**
 	 * Class Design.
@@ -52,9 +76,9 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 	 */
 	public static class Design
 	{
-		private final static int MINE  = 9;
-		private final static int MARK  = 10;
-		private final static int CLOSE = 11;
+		private final static int MINE  = Field.CODE_MINE;
+		private final static int MARK  = Field.CODE_MARKED;
+		private final static int CLOSE = Field.CODE_CLOSED;
 
 		private Color   colText;
 		private Color   colClosed;
@@ -105,13 +129,19 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 		/**
 		 * Update the labels for the cells.
 		 * Depends on the Field.displays
+		 * @return true, if a label has changed.
 		 */
-		public void updateCellLabels()
+		public boolean updateCellLabels()
 		{
+			char[] old = {posChar[0], posChar[MINE], posChar[MARK], posChar[CLOSE]};
+
 			this.posChar[0]     = Field.getDisplay(Field.DISPLAY_ZERO);
 			this.posChar[MINE]  = Field.getDisplay(Field.DISPLAY_MINE);
 			this.posChar[MARK]  = Field.getDisplay(Field.DISPLAY_MARKED);
 			this.posChar[CLOSE] = Field.getDisplay(Field.DISPLAY_CLOSED);
+
+			return old[0] != posChar[0] || old[1] != posChar[MINE]
+				|| old[2] != posChar[MARK] || old[3] != posChar[CLOSE];
 		}
 
 
@@ -172,7 +202,7 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 		 * @param g     graphics where the cell shoule be displayed.
 		 * @param point point where to set the cell representation
 		 * @param size  size of the cell representation
-		 * @param data  open, closed, marked, mine...
+		 * @param data  display code: 0-8 open, mine, marked, closed (see Field.export).
 		 * @return 
 		 */
 		public void drawCell(Graphics g, Point point, int size, int data)
@@ -198,15 +228,7 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 				g.drawRoundRect(point.x, point.y, size, size, arc_, arc_);
 			}
 
-			/*Cell text.*/
-			switch (data)
-			{
-				case Field.VALUE_MINE_ON_POS: data = MINE; break;
-				case Field.VALUE_CLOSED: data = CLOSE; break;
-				case Field.VALUE_MARKED: data = MARK; break;
-				default: break;
-			}
-
+			/*Cell text: codes are the labels' indices.*/
 			FontMetrics fm;
 			int height, width;
 
@@ -245,6 +267,7 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 		this.setCellGap(-1);
 		this.setMarkTime(300);
 		this.design = Design.createDesign();
+		this.dirty  = new BitSet();
 	}
 
 
@@ -264,8 +287,99 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 	 */
 	public void openGame(Game g)
 	{
+		if (this.changes != null) // stop listening to the old game.
+		{
+			this.changes.cancel();
+			this.changes = null;
+		}
+
 		this.game = g;
 		this.showRoot();
+		this.repaintAll();
+
+		if (g != null)
+		{
+			this.changes = g.getPublisher().subscribe(this, EDT, DELTAS_MAX);
+		}
+	}
+
+
+	/**
+	 * Mark the cells changed by the moves and paint them.
+	 * Runs on the event dispatch thread.
+	 * @param batch changes since the last call.
+	 */
+	@Override
+	public void onDeltas(Delta[] batch)
+	{
+		for (Delta d : batch)
+		{
+			if (d.restart) // all changed.
+			{
+				this.repaintAll();
+				return;
+			}
+
+			for (int i : d.opened)   this.dirty.set(i);
+			for (int i : d.toggled)  this.dirty.set(i);
+			for (int i : d.revealed) this.dirty.set(i);
+			for (int i : d.closed)   this.dirty.set(i);
+		}
+		this.repaintDirty();
+	}
+
+
+	/**
+	 * Paint all cells again.
+	 */
+	public void repaintAll()
+	{
+		this.dirtyAll = true;
+		this.repaint();
+	}
+
+
+	/**
+	 * Repaint only the area of the dirty cells.
+	 */
+	private void repaintDirty()
+	{
+		if (this.game == null || this.dirty.isEmpty())
+			return;
+
+		Rectangle clip = null;
+
+		for (int i=this.dirty.nextSetBit(0); i>=0; i=this.dirty.nextSetBit(i+1))
+		{
+			Point     p    = this.index2Point(i);
+			Rectangle cell = new Rectangle(p.x, p.y, this.getCellSize()+1, this.getCellSize()+1);
+
+			clip = (clip==null) ? cell : clip.union(cell);
+		}
+		this.repaint(clip.x, clip.y, clip.width, clip.height);
+	}
+
+
+	/**
+	 * Mark the cell to be painted again (if it's in the field).
+	 * @param index position of the cell.
+	 */
+	private void setDirty(int index)
+	{
+		if (this.game != null && 0<=index && index<this.game.field.size())
+		{
+			this.dirty.set(index);
+		}
+	}
+
+
+	/**
+	 * Get the duration of the last paint.
+	 * @return duration in milli seconds.
+	 */
+	public double getPaintTime()
+	{
+		return this.paintTime * 1e-6;
 	}
 
 
@@ -387,20 +501,50 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 			return;
 		}
 
-		this.clear(this.buffGraphics);
-		this.design.updateCellLabels();
+		long start = System.nanoTime();
+		int  size  = this.getCellSize();
 
-		int size = this.getCellSize();
-		int gap  = this.getCellGap();
+		if (this.design.updateCellLabels()) // other labels: all cells look different.
+		{
+			this.dirtyAll = true;
+		}
+
+		Field field = this.game.field;
+		if (this.codes.length < field.getWidth()) // one row.
+		{
+			this.codes = new byte[field.getWidth()];
+		}
+
+		if (this.dirtyAll)
+		{
+			this.clear(this.buffGraphics);
 
-		for (int i=0; i<this.game.field.size(); i++)
+			for (int r=0; r<field.getHeight(); r++) // one row at once.
+			{
+				field.export(r, 0, 1, field.getWidth(), this.codes, 0);
+
+				for (int c=0; c<field.getWidth(); c++)
+				{
+					this.design.drawCell(buffGraphics, this.index2Point(r*field.getWidth()+c), size, this.codes[c]);
+				}
+			}
+		}
+		else // only the changed cells.
 		{
-			Point p;
-			this.design.drawCell(buffGraphics,
-					p=this.index2Point(i),
-					size,
-					this.game.field.onPosition(i));
+			this.buffGraphics.setColor(this.host.getBackground());
+
+			for (int i=this.dirty.nextSetBit(0); i>=0; i=this.dirty.nextSetBit(i+1))
+			{
+				Point p = this.index2Point(i);
+
+				this.buffGraphics.fillRect(p.x, p.y, size+1, size+1); // with border.
+				field.export(i / field.getWidth(), i % field.getWidth(), 1, 1, this.codes, 0);
+				this.design.drawCell(buffGraphics, p, size, this.codes[0]);
+			}
 		}
+		this.dirty.clear();
+		this.dirtyAll  = false;
+		this.paintTime = System.nanoTime() - start;
 
 		graphics.drawImage(this.buffImage,
 				0,//this.seenFirstCol*(size+gap),
@@ -434,6 +578,7 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 						BufferedImage.TYPE_INT_ARGB);
 
 				this.buffGraphics = this.buffImage.getGraphics();
+				this.dirtyAll     = true; // new buffer: nothing painted yet.
 			}
 			catch (IllegalArgumentException e)
 			{}
@@ -573,6 +718,8 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 		if (e==null) return;
 
 		this.aimedFieldPos = this.point2Index(e.getPoint());
+		this.setDirty(this.aimedFieldPos); // hover cell.
+		this.repaintDirty();
 	}
 
 
@@ -592,7 +739,10 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 
 		this.scrollVertical((difference)/width);
 		this.scrollHorizontal((difference)%width);
-		this.repaint();
+
+		this.setDirty(this.aimedFieldPos); // old and new hover cell.
+		this.setDirty(pos);
+		this.repaintDirty();
 
 		this.aimedFieldPos = pos;
 
@@ -646,12 +796,13 @@ class GameField extends Canvas implements MouseListener, MouseMotionListener
 	{
 		this.host.updateGameLabel();
 		this.mouseClickStarted = Long.MAX_VALUE;
-		this.aimedFieldPos     = -1;
 
-		if (repaint)
+		if (repaint) // moves are painted with their delta, only the hover cell.
 		{
-			this.repaint();
+			this.setDirty(this.aimedFieldPos);
+			this.repaintDirty();
 		}
+		this.aimedFieldPos = -1;
 	}
 
 
@@ -519,7 +519,10 @@ public class Minesweeper extends JFrame implements ActionListener
 		String state;
 		state = game.field.getMarked()
 			+ "/"+game.field.getMines();
-		
+
+		if (this.gameField != null && GameField.LARGE <= game.field.size()) // big: show paint time.
+			state += String.format(" (paint %.1f ms)", this.gameField.getPaintTime());
+
 		this.gameLabel.setText(state);
 		this.showGameTime();
 		this.setGiveUpButton();
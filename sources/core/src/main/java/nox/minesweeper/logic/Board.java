@@ -0,0 +1,57 @@
+package nox.minesweeper.logic;
+
+
+
+/**
+ * Interface Board.
+ * A read-only look at the positions, as a player sees them.
+ * Implemented as views over existing data (Field, Frame, parsed text),
+ * nothing is copied.
+ */
+public interface Board
+{
+	/**
+	 * Get the height.
+	 * @return height as int.
+	 */
+	int getHeight();
+
+
+	/**
+	 * Get the width.
+	 * @return width as int.
+	 */
+	int getWidth();
+
+
+	/**
+	 * Get size as number of positions.
+	 * @return size as int.
+	 */
+	int size();
+
+
+	/**
+	 * Get the state of the position.
+	 * @param index position.
+	 * @return State (open, closed, marked)
+	 * @throws ArrayIndexOutOfBoundsException if the index is not on the board.
+	 */
+	Field.State getState(int index) throws ArrayIndexOutOfBoundsException;
+
+
+	/**
+	 * Get the value of the position.
+	 * @param index position.
+	 * @return count of neighbouring mines, or Field.VALUE_MINE_ON_POS, Field.VALUE_MARKED, Field.VALUE_CLOSED.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not on the board.
+	 */
+	int onPosition(int index) throws ArrayIndexOutOfBoundsException;
+
+
+	/**
+	 * Get the neighbourhood of the positions.
+	 * @return shared topology for the board's size.
+	 */
+	Topology getTopology();
+}
@@ -0,0 +1,150 @@
+package nox.minesweeper.logic;
+
+
+
+/**
+ * Class Cell.
+ * Packed representation of one position in a field: one byte per cell.
+ *
+ * <pre>
+ *  bit  7 6 5 4 3 2 1 0
+ *       - M O X c c c c
+ *  c: count of mines in the neighbourhood (0-8)
+ *  X: this is a mine
+ *  O: opened
+ *  M: marked
+ * </pre>
+ * A cell which is neither opened nor marked is closed.
+ */
+final class Cell
+{
+	public final static byte COUNT  = 0x0F;
+	public final static byte MINE   = 0x10;
+	public final static byte OPEN   = 0x20;
+	public final static byte MARKED = 0x40;
+
+	public final static byte STATE  = OPEN | MARKED;
+
+	private final static byte[] CODES = new byte[256]; // display code by packed cell.
+
+	static
+	{
+		for (int c=0; c<CODES.length; c++)
+		{
+			CODES[c] = code0((byte) c);
+		}
+	}
+
+
+	private Cell()
+	{}
+
+
+	/**
+	 * Compute the display code of the cell.
+	 * @param cell packed cell.
+	 * @return code (see code()).
+	 */
+	private static byte code0(byte cell)
+	{
+		if ((cell & OPEN) == 0)
+		{
+			return ((cell & MARKED) != 0) ? Field.CODE_MARKED : Field.CODE_CLOSED;
+		}
+		return ((cell & MINE) != 0) ? Field.CODE_MINE : (byte) (cell & COUNT);
+	}
+
+
+	/**
+	 * Get the display code of the cell.
+	 * @param cell packed cell.
+	 * @return count of neighbouring mines (0-8) if opened, else Field.CODE_MINE, CODE_MARKED or CODE_CLOSED.
+	 */
+	public static byte code(byte cell)
+	{
+		return CODES[cell & 0xFF];
+	}
+
+
+	/**
+	 * Get the count of mines in the neighbourhood.
+	 * @param cell packed cell.
+	 * @return number of neighbouring mines (0-8).
+	 */
+	public static int count(byte cell)
+	{
+		return cell & COUNT;
+	}
+
+
+	/**
+	 * Check if the cell contains a mine.
+	 * @param cell packed cell.
+	 * @return true, if this is a mine.
+	 */
+	public static boolean isMine(byte cell)
+	{
+		return (cell & MINE) != 0;
+	}
+
+
+	/**
+	 * Check if the cell is opened.
+	 * @param cell packed cell.
+	 * @return true, if opened.
+	 */
+	public static boolean isOpen(byte cell)
+	{
+		return (cell & OPEN) != 0;
+	}
+
+
+	/**
+	 * Check if the cell is marked.
+	 * @param cell packed cell.
+	 * @return true, if marked.
+	 */
+	public static boolean isMarked(byte cell)
+	{
+		return (cell & MARKED) != 0;
+	}
+
+
+	/**
+	 * Check if the cell is neither opened nor marked.
+	 * @param cell packed cell.
+	 * @return true, if closed.
+	 */
+	public static boolean isClosed(byte cell)
+	{
+		return (cell & STATE) == 0;
+	}
+
+
+	/**
+	 * Get the state of the cell.
+	 * @param cell packed cell.
+	 * @return State (open, closed, marked)
+	 */
+	public static Field.State state(byte cell)
+	{
+		if ((cell & OPEN) != 0)   return Field.State.OPEN;
+		if ((cell & MARKED) != 0) return Field.State.MARKED;
+		return Field.State.CLOSED;
+	}
+
+
+	/**
+	 * Get the value which is seen from outside.
+	 * @param cell packed cell.
+	 * @return count of neighbouring mines if opened, else closed or marked value.
+	 */
+	public static int value(byte cell)
+	{
+		if ((cell & OPEN) == 0)
+		{
+			return ((cell & MARKED) != 0) ? Field.VALUE_MARKED : Field.VALUE_CLOSED;
+		}
+		return ((cell & MINE) != 0) ? Field.VALUE_MINE_ON_POS : cell & COUNT;
+	}
+}
@@ -0,0 +1,235 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Class Cells.
+ * Storage for the packed positions of a field (see Cell).
+ * Besides the cells, a storage may keep the field's counters (meta),
+ * so a persistent storage can restore a field without any scan.
+ */
+abstract class Cells
+{
+	final static int MINES  = 0; // meta slots.
+	final static int MARKED = 1;
+	final static int OPENED = 2;
+	final static int LOST   = 3;
+
+	final static int META   = 4; // number of meta slots.
+
+	final static int OPEN_SET   = 1; // index sets (as bits).
+	final static int MARKED_SET = 2;
+	final static int NUMBER_SET = 4; // open with a value of at least 1 (number or mine).
+	final static int CLOSED_SET = 8; // neither open nor marked.
+
+
+	/**
+	 * Get the packed cell.
+	 * @param index position.
+	 * @return packed cell as byte.
+	 */
+	abstract byte get(int index);
+
+
+	/**
+	 * Set the packed cell.
+	 * @param index position.
+	 * @param cell  new packed cell.
+	 */
+	abstract void set(int index, byte cell);
+
+
+	/**
+	 * Get the number of cells.
+	 * @return size as int.
+	 */
+	abstract int size();
+
+
+	/**
+	 * Copy consecutive cells into the array.
+	 * @param index first position.
+	 * @param dst   array to fill.
+	 * @param off   first index in dst.
+	 * @param len   number of cells.
+	 */
+	void read(int index, byte[] dst, int off, int len)
+	{
+		for (int i=0; i<len; i++)
+		{
+			dst[off+i] = this.get(index+i);
+		}
+	}
+
+
+	/**
+	 * Copy the display codes of a rectangle into the array (see Cell.code()).
+	 * The rectangle is copied row by row, every row is read at once.
+	 * @param width width of the field.
+	 * @param row   first row.
+	 * @param col   first column.
+	 * @param rows  number of rows.
+	 * @param cols  number of columns.
+	 * @param dst   array to fill with rows*cols codes.
+	 * @param off   first index in dst.
+	 * @throws ArrayIndexOutOfBoundsException if the rectangle is not in the field, or dst is too short.
+	 * @throws NullPointerException if dst is null.
+	 */
+	void codes(int width, int row, int col, int rows, int cols, byte[] dst, int off) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		int height = this.size() / width;
+
+		if (row<0 || col<0 || rows<0 || cols<0 || height-rows<row || width-cols<col)
+			throw new ArrayIndexOutOfBoundsException("Invalid rectangle.");
+
+		if (off<0 || dst.length-off < rows*cols)
+			throw new ArrayIndexOutOfBoundsException("Buffer too short.");
+
+		for (int r=0; r<rows; r++)
+		{
+			int at = off + r*cols;
+
+			this.read((row+r)*width + col, dst, at, cols);
+
+			for (int i=at; i<at+cols; i++) // translate in place.
+			{
+				dst[i] = Cell.code(dst[i]);
+			}
+		}
+	}
+
+
+	/**
+	 * Set consecutive cells from the array.
+	 * @param index first position.
+	 * @param src   array with the new cells.
+	 * @param off   first index in src.
+	 * @param len   number of cells.
+	 */
+	void write(int index, byte[] src, int off, int len)
+	{
+		for (int i=0; i<len; i++)
+		{
+			this.set(index+i, src[off+i]);
+		}
+	}
+
+
+	/**
+	 * Get the index sets, which contain the cell.
+	 * @param cell packed cell.
+	 * @return OPEN_SET, MARKED_SET, NUMBER_SET and CLOSED_SET combined.
+	 */
+	static int sets(byte cell)
+	{
+		if ((cell & Cell.OPEN) != 0)
+			return ((cell & (Cell.MINE|Cell.COUNT)) != 0) ? OPEN_SET|NUMBER_SET : OPEN_SET;
+
+		return ((cell & Cell.MARKED) != 0) ? MARKED_SET : CLOSED_SET;
+	}
+
+
+	/**
+	 * Visit all positions of an index set, in ascending order.
+	 * Default: Scan all cells.
+	 * @param set     OPEN_SET, MARKED_SET, NUMBER_SET or CLOSED_SET.
+	 * @param visitor called for every position in the set.
+	 */
+	void forEach(int set, Field.IndexVisitor visitor)
+	{
+		for (int i=0; i<this.size(); i++)
+		{
+			if ((sets(this.get(i)) & set) != 0)
+				visitor.visit(i);
+		}
+	}
+
+
+	/**
+	 * Find all positions whose cell matches: (cell & mask) == value.
+	 * @param mask  bits to compare.
+	 * @param value expected bits.
+	 * @param expected estimated number of matches (initial capacity).
+	 * @return matching positions in ascending order.
+	 */
+	int[] indices(byte mask, byte value, int expected)
+	{
+		int[] found = new int[Math.max(16, expected)];
+		int   len   = 0;
+
+		for (int i=0; i<this.size(); i++)
+		{
+			if ((this.get(i) & mask) != value)
+				continue;
+
+			if (found.length <= len) // extend.
+				found = Arrays.copyOf(found, 2*found.length);
+
+			found[len++] = i;
+		}
+		return Arrays.copyOf(found, len);
+	}
+
+
+	/**
+	 * Set all cells to the given value.
+	 * @param cell new packed cell for all positions.
+	 */
+	void fill(byte cell)
+	{
+		for (int i=0; i<this.size(); i++)
+		{
+			this.set(i, cell);
+		}
+	}
+
+
+	/**
+	 * Get a stored counter of the field.
+	 * @param slot MINES, MARKED, OPENED or LOST.
+	 * @return stored value, 0 if the storage doesn't keep counters.
+	 */
+	int meta(int slot)
+	{
+		return 0;
+	}
+
+
+	/**
+	 * Store a counter of the field.
+	 * Storages which don't keep counters ignore this.
+	 * @param slot  MINES, MARKED, OPENED or LOST.
+	 * @param value new value.
+	 */
+	void meta(int slot, int value)
+	{
+	}
+
+
+	/**
+	 * Get independent cells with the same content on the heap.
+	 * Changes on the fork don't change these cells and vice versa.
+	 * Default: Copy all cells.
+	 * @return forked cells.
+	 */
+	Cells fork()
+	{
+		Cells fork = new HeapCells(this.size());
+
+		for (int i=0; i<this.size(); i++)
+		{
+			fork.set(i, this.get(i));
+		}
+		return fork;
+	}
+
+
+	/**
+	 * Write changes to the underlying medium, if there is one.
+	 */
+	void flush()
+	{
+	}
+}
@@ -0,0 +1,621 @@
+package nox.minesweeper.logic;
+
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Class ChunkedField.
+ * A field for very big boards, also with more than 2^31 positions.
+ * It works like Field, but positions are addressed by long coordinates.
+ *
+ * The field is split into tiles of 64x64 positions (packed like Field, see Cell).
+ * A tile is only allocated if it is touched by generation, opening or marking.
+ * Mines are generated per tile after the first move: Every tile gets its fair
+ * share of the mines, placed by a MinePlacer seeded with the field's seed and
+ * the tile's index. So the same seed and first move give the same board.
+ */
+public class ChunkedField
+{
+	public final static int TILE_BITS = 6;
+	public final static int TILE      = 1 << TILE_BITS; // positions per tile side.
+
+	private final static int MASK     = TILE - 1;
+
+	private final long height, width, size;
+	private final long tileRows, tileCols;
+	private final long seed;
+	private final long minesWanted;
+
+	private Map<Long,Tile> tiles; // allocated tiles by tile index.
+	private long           mines; // actually placed (or to be placed) mines.
+	private long           marked;
+	private long           opened; // opened positions without mine.
+	private boolean        lost;
+
+	private long firstRow, firstCol; // first move, -1 if not done yet.
+
+	private long[] queue; // reused ring buffer for the flood fill.
+
+	private long   cachedKey; // most recently used tile (flood fill stays mostly in one tile).
+	private Tile   cached;
+
+
+	/**
+	 * Class Tile.
+	 * A 64x64 part of the field.
+	 */
+	private static class Tile
+	{
+		public final byte[] cells = new byte[TILE*TILE];
+
+		public boolean mined;   // mines are placed.
+		public boolean counted; // counts of neighbouring mines are set.
+	}
+
+
+	/**
+	 * Initiate a new chunked field.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param mines  number of mines.
+	 * @param seed   seed for the mines.
+	 * @throws ArrayIndexOutOfBoundsException if the size is invalid or there are too many mines.
+	 */
+	public ChunkedField(long height, long width, long mines, long seed) throws ArrayIndexOutOfBoundsException
+	{
+		if (height<Field.MIN || width<Field.MIN || Long.MAX_VALUE/height < width)
+			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+
+		this.height   = height;
+		this.width    = width;
+		this.size     = height*width;
+		this.tileRows = (height + MASK) >> TILE_BITS;
+		this.tileCols = (width  + MASK) >> TILE_BITS;
+
+		if (this.size <= mines)
+			throw new ArrayIndexOutOfBoundsException("Too many mines (max."+(this.size-1)+")");
+
+		this.seed        = seed;
+		this.minesWanted = Math.max(0, mines);
+		this.mines       = this.minesWanted;
+
+		this.tiles    = new HashMap<Long,Tile>();
+		this.queue    = new long[64];
+		this.firstRow = -1;
+		this.firstCol = -1;
+
+		this.cachedKey = -1;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "ChunkedField " + this.width + "x" + this.height
+			+ " ("+this.marked+"/"+this.mines+" mines, "+this.tiles.size()+" tiles)"
+			+ ((this.lost) ? " LOST" : "");
+	}
+
+
+	/**
+	 * Check the coordinates.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in the field.
+	 */
+	private void check(long row, long col) throws ArrayIndexOutOfBoundsException
+	{
+		if (row<0 || this.height<=row)
+			throw new ArrayIndexOutOfBoundsException("Invalid row");
+
+		if (col<0 || this.width<=col)
+			throw new ArrayIndexOutOfBoundsException("Invalid column");
+	}
+
+
+	/**
+	 * Get the tile for the given tile coordinates, allocate it, if needed.
+	 * @param tr tile row.
+	 * @param tc tile column.
+	 * @return tile.
+	 */
+	private Tile tile(long tr, long tc)
+	{
+		long key  = tr*this.tileCols + tc;
+		Tile tile = (key == this.cachedKey) ? this.cached : this.tiles.get(key);
+
+		if (tile == null) // first touch.
+		{
+			tile = new Tile();
+			this.tiles.put(key, tile);
+		}
+
+		if (!tile.mined && 0<=this.firstRow) // mines can be placed now.
+		{
+			this.placeMines(tile, tr, tc);
+		}
+
+		this.cachedKey = key;
+		this.cached    = tile;
+		return tile;
+	}
+
+
+	/**
+	 * Get the tile for the given tile coordinates, place mines and count them.
+	 * @param tr tile row.
+	 * @param tc tile column.
+	 * @return tile with counted mines.
+	 */
+	private Tile countedTile(long tr, long tc)
+	{
+		Tile tile = this.tile(tr, tc);
+
+		if (!tile.counted && tile.mined)
+		{
+			this.countMines(tile, tr, tc);
+		}
+		return tile;
+	}
+
+
+	/**
+	 * Get the height of the tile (last tile row may be smaller).
+	 * @param tr tile row.
+	 * @return rows in this tile.
+	 */
+	private int tileHeight(long tr)
+	{
+		return (int) Math.min(TILE, this.height - (tr << TILE_BITS));
+	}
+
+
+	/**
+	 * Get the width of the tile (last tile column may be smaller).
+	 * @param tc tile column.
+	 * @return columns in this tile.
+	 */
+	private int tileWidth(long tc)
+	{
+		return (int) Math.min(TILE, this.width - (tc << TILE_BITS));
+	}
+
+
+	/**
+	 * Get the share of mines for the given tile.
+	 * The tiles get floor(mines*positions before) - floor(mines*positions before this)
+	 * so all shares sum up to the wanted mines.
+	 * @param tr tile row.
+	 * @param tc tile column.
+	 * @return number of mines in this tile.
+	 */
+	private int share(long tr, long tc)
+	{
+		long before = (tr << TILE_BITS)*this.width + (tc << TILE_BITS)*this.tileHeight(tr);
+		long after  = before + (long) this.tileHeight(tr)*this.tileWidth(tc);
+
+		BigInteger m = BigInteger.valueOf(this.minesWanted);
+		BigInteger n = BigInteger.valueOf(this.size);
+
+		return m.multiply(BigInteger.valueOf(after)).divide(n)
+			.subtract(m.multiply(BigInteger.valueOf(before)).divide(n))
+			.intValue();
+	}
+
+
+	/**
+	 * Place the mines of the tile.
+	 * The first move's neighbourhood stays without mines.
+	 * @param tile tile to fill.
+	 * @param tr   tile row.
+	 * @param tc   tile column.
+	 */
+	private void placeMines(Tile tile, long tr, long tc)
+	{
+		int h = this.tileHeight(tr);
+		int w = this.tileWidth(tc);
+
+		/*Excluded positions of the first move's neighbourhood (local indices).*/
+		int[] excluded = new int[9];
+		int   len      = 0;
+
+		for (long r=this.firstRow-1; r<=this.firstRow+1; r++)
+		{
+			for (long c=this.firstCol-1; c<=this.firstCol+1; c++)
+			{
+				if (r<0 || c<0 || this.height<=r || this.width<=c) // not on the board.
+					continue;
+
+				if (r>>TILE_BITS != tr || c>>TILE_BITS != tc) // not in this tile.
+					continue;
+
+				excluded[len] = (int) (r&MASK)*TILE + (int) (c&MASK);
+				len++;
+			}
+		}
+
+		/*Placer works on h*w positions: Translate to tile indices.*/
+		int[] ex = new int[len];
+		for (int i=0; i<len; i++)
+		{
+			ex[i] = (excluded[i]>>TILE_BITS)*w + (excluded[i]&MASK);
+		}
+
+		int share   = this.share(tr, tc);
+		int allowed = h*w - len;
+
+		if (allowed < share) // excluded positions: Those mines are lost.
+		{
+			this.mines -= share - allowed;
+			share       = allowed;
+		}
+
+		MinePlacer placer = new MinePlacer(mix(this.seed + (tr*this.tileCols+tc)*0x9E3779B97F4A7C15L));
+
+		for (int m : placer.place(h*w, share, ex))
+		{
+			tile.cells[(m/w)*TILE + m%w] |= Cell.MINE;
+		}
+		tile.mined = true;
+	}
+
+
+	/**
+	 * Mix the bits of the given value (finalizer of MurmurHash3).
+	 * @param z value.
+	 * @return mixed value.
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+
+	/**
+	 * Count the neighbouring mines for all positions in the tile.
+	 * The tile is copied with a border of one position (from the
+	 * neighbouring tiles) and counted with 3x3 sums.
+	 * @param tile tile to count.
+	 * @param tr   tile row.
+	 * @param tc   tile column.
+	 */
+	private void countMines(Tile tile, long tr, long tc)
+	{
+		final int P = TILE+2; // padded side.
+		byte[] pad = new byte[P*P];
+
+		for (int dr=-1; dr<=1; dr++)
+		{
+			for (int dc=-1; dc<=1; dc++)
+			{
+				long ntr = tr+dr, ntc = tc+dc;
+
+				if (ntr<0 || ntc<0 || this.tileRows<=ntr || this.tileCols<=ntc)
+					continue;
+
+				Tile n  = (dr==0 && dc==0) ? tile : this.tile(ntr, ntc);
+				int  h  = this.tileHeight(ntr);
+				int  w  = this.tileWidth(ntc);
+
+				/*Copy only the part which is next to this tile.*/
+				int r0 = (dr<0) ? h-1 : 0, r1 = (dr>0) ? Math.min(1,h) : h;
+				int c0 = (dc<0) ? w-1 : 0, c1 = (dc>0) ? Math.min(1,w) : w;
+
+				for (int r=r0; r<r1; r++)
+				{
+					for (int c=c0; c<c1; c++)
+					{
+						int pr = 1 + dr*TILE + r;
+						int pc = 1 + dc*TILE + c;
+
+						if (pr<0 || pc<0 || P<=pr || P<=pc)
+							continue;
+
+						pad[pr*P+pc] = (byte) ((n.cells[r*TILE+c] & Cell.MINE) >> 4);
+					}
+				}
+			}
+		}
+
+		int h = this.tileHeight(tr);
+		int w = this.tileWidth(tc);
+
+		for (int r=0; r<h; r++)
+		{
+			for (int c=0; c<w; c++)
+			{
+				int p   = (r+1)*P + c+1;
+				int cnt = pad[p-P-1] + pad[p-P] + pad[p-P+1]
+					+     pad[p-1]               + pad[p+1]
+					+     pad[p+P-1] + pad[p+P] + pad[p+P+1];
+
+				tile.cells[r*TILE+c] = (byte) ((tile.cells[r*TILE+c] & ~Cell.COUNT) | cnt);
+			}
+		}
+		tile.counted = true;
+	}
+
+
+	/**
+	 * Get the packed cell of a position (mines are counted).
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return packed cell.
+	 */
+	private byte cell(long row, long col)
+	{
+		Tile tile = this.countedTile(row>>TILE_BITS, col>>TILE_BITS);
+		return tile.cells[(int) (row&MASK)*TILE + (int) (col&MASK)];
+	}
+
+
+	/**
+	 * Toggles the mark of the given position.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return true, if position is marked now.
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in the field.
+	 */
+	public boolean toggleMark(long row, long col) throws ArrayIndexOutOfBoundsException
+	{
+		this.check(row, col);
+
+		if (this.isLost() || this.isWon()) // no updates
+		{
+			return false;
+		}
+
+		Tile tile = this.tile(row>>TILE_BITS, col>>TILE_BITS);
+		int  i    = (int) (row&MASK)*TILE + (int) (col&MASK);
+		byte cell = tile.cells[i];
+
+		if (Cell.isOpen(cell)) // marking not possible anymore.
+		{
+			return false;
+		}
+
+		tile.cells[i]  = (byte) (cell ^ Cell.MARKED);
+		this.marked   += (Cell.isMarked(cell)) ? -1 : 1;
+
+		return !Cell.isMarked(cell);
+	}
+
+
+	/**
+	 * Opens given Position and maybe it's zero-neighbours.
+	 * The first move places the mines (lazily, per tile).
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return number of newly opened positions.
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in the field.
+	 */
+	public long open(long row, long col) throws ArrayIndexOutOfBoundsException
+	{
+		this.check(row, col);
+
+		if (this.firstRow < 0) // first move.
+		{
+			this.firstRow = row;
+			this.firstCol = col;
+		}
+
+		byte cell = this.cell(row, col);
+
+		if (this.isLost() || this.isWon() || !Cell.isClosed(cell)) // no updates
+		{
+			return 0;
+		}
+
+		this.set(row, col, (byte) (cell | Cell.OPEN));
+
+		if (Cell.isMine(cell)) // lost.
+		{
+			this.lost = true;
+			return 1;
+		}
+
+		this.opened += 1;
+
+		if (0 < Cell.count(cell)) // finised opening.
+		{
+			return 1;
+		}
+
+		/*Flood fill: The ring buffer holds opened "0" positions to expand.*/
+		long[] queue = this.queue;
+		long   count = 1;
+		int    head  = 0, tail = 0, len = 0;
+
+		queue[tail] = row*this.width + col;
+		tail = (tail+1) % queue.length;
+		len++;
+
+		while (0 < len)
+		{
+			long p = queue[head];
+			head   = (head+1) % queue.length;
+			len--;
+
+			long pr = p / this.width;
+			long pc = p - pr*this.width;
+
+			for (long r=Math.max(0,pr-1); r<=pr+1 && r<this.height; r++)
+			{
+				for (long c=Math.max(0,pc-1); c<=pc+1 && c<this.width; c++)
+				{
+					byte n = this.cell(r, c);
+
+					if (!Cell.isClosed(n)) // marked, already open (or self).
+						continue;
+
+					this.set(r, c, (byte) (n | Cell.OPEN));
+					this.opened += 1;
+					count       += 1;
+
+					if (0 < Cell.count(n)) // don't open neighbours.
+						continue;
+
+					if (len == queue.length) // extend ring buffer.
+					{
+						long[] tmp = new long[2*queue.length];
+						for (int i=0; i<len; i++) tmp[i] = queue[(head+i) % queue.length];
+						queue = this.queue = tmp;
+						head  = 0;
+						tail  = len;
+					}
+
+					queue[tail] = r*this.width + c;
+					tail = (tail+1) % queue.length;
+					len++;
+				}
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Set the packed cell of a position.
+	 * @param row  row of position.
+	 * @param col  column of position.
+	 * @param cell new packed cell.
+	 */
+	private void set(long row, long col, byte cell)
+	{
+		Tile tile = this.tile(row>>TILE_BITS, col>>TILE_BITS);
+		tile.cells[(int) (row&MASK)*TILE + (int) (col&MASK)] = cell;
+	}
+
+
+	/**
+	 * Get the state of the Position.
+	 * Doesn't allocate a tile for untouched positions.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return State (open, closed, marked)
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in the field.
+	 */
+	public Field.State getState(long row, long col) throws ArrayIndexOutOfBoundsException
+	{
+		this.check(row, col);
+
+		Tile tile = this.tiles.get((row>>TILE_BITS)*this.tileCols + (col>>TILE_BITS));
+		return (tile==null)
+			? Field.State.CLOSED
+			: Cell.state(tile.cells[(int) (row&MASK)*TILE + (int) (col&MASK)]);
+	}
+
+
+	/**
+	 * Get the count of the neighbouring mines for the Position.
+	 * Doesn't allocate a tile for untouched positions.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return like Field.onPosition(int).
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in the field.
+	 */
+	public int onPosition(long row, long col) throws ArrayIndexOutOfBoundsException
+	{
+		this.check(row, col);
+
+		Tile tile = this.tiles.get((row>>TILE_BITS)*this.tileCols + (col>>TILE_BITS));
+		return (tile==null)
+			? Field.VALUE_CLOSED
+			: Cell.value(tile.cells[(int) (row&MASK)*TILE + (int) (col&MASK)]);
+	}
+
+
+	/**
+	 * Check if this Field has opend a mine.
+	 * @return true, if mine is revealled.
+	 */
+	public boolean isLost()
+	{
+		return this.lost;
+	}
+
+
+	/**
+	 * Check if this field is won.
+	 * @return true, if everything except the mines are open.
+	 */
+	public boolean isWon()
+	{
+		return !this.lost && 0<=this.firstRow && this.opened == this.size - this.mines;
+	}
+
+
+	/**
+	 * Get size as number of positions.
+	 * @return size as long.
+	 */
+	public long size()
+	{
+		return this.size;
+	}
+
+
+	/**
+	 * Get height of this field.
+	 * @return height as long.
+	 */
+	public long getHeight()
+	{
+		return this.height;
+	}
+
+
+	/**
+	 * Get width of this field.
+	 * @return width as long.
+	 */
+	public long getWidth()
+	{
+		return this.width;
+	}
+
+
+	/**
+	 * Get the count of the mines.
+	 * @return mines count in field.
+	 */
+	public long getMines()
+	{
+		return this.mines;
+	}
+
+
+	/**
+	 * Get the count of the marked positions.
+	 * @return marked count in field.
+	 */
+	public long getMarked()
+	{
+		return this.marked;
+	}
+
+
+	/**
+	 * Get the count of the opened positions without a mine.
+	 * @return opened safe positions.
+	 */
+	public long getOpened()
+	{
+		return this.opened;
+	}
+
+
+	/**
+	 * Get the count of the allocated tiles.
+	 * @return number of allocated tiles (TILE x TILE positions each).
+	 */
+	public int getTiles()
+	{
+		return this.tiles.size();
+	}
+}
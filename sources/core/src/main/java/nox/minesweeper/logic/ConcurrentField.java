@@ -0,0 +1,407 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Class ConcurrentField.
+ * A field, which may be played by several threads at once.
+ *
+ * The cells are packed like in Field (see Cell), eight cells per long.
+ * State transitions (closed to open, closed to marked and back) are
+ * compare-and-set operations on the long which holds the cell,
+ * so every position is opened (or toggled) by exactly one thread.
+ * The counters are striped (LongAdder), a flood fill uses its own queue.
+ *
+ * Filling the field with mines is not concurrent: Fill before the threads play.
+ */
+public class ConcurrentField
+{
+	private final static int  LANE_BITS = 3; // 8 cells per long.
+	private final static int  LANE      = (1 << LANE_BITS) - 1;
+	private final static int  FAILED    = -1;
+
+	private final Topology        topology;
+	private final AtomicLongArray cells;  // packed, 8 cells per long.
+	private final int             size;
+	private final LongAdder       marked;
+	private final LongAdder       opened; // opened positions without mine.
+	private volatile int          mines;
+	private volatile boolean      lost;
+
+
+	/**
+	 * Initiate a new concurrent field without mines.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @throws ArrayIndexOutOfBoundsException if the size is invalid.
+	 */
+	public ConcurrentField(int height, int width) throws ArrayIndexOutOfBoundsException
+	{
+		this.topology = Topology.of(height, width);
+		this.size     = height*width;
+		this.cells    = new AtomicLongArray((this.size + LANE) >>> LANE_BITS);
+		this.marked   = new LongAdder();
+		this.opened   = new LongAdder();
+	}
+
+
+	/**
+	 * Get the packed cell.
+	 * @param index position.
+	 * @return packed cell as byte.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	private byte get(int index) throws ArrayIndexOutOfBoundsException
+	{
+		if (index<0 || this.size<=index) // not in field.
+		{
+			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
+		}
+		return (byte) (this.cells.get(index >>> LANE_BITS) >>> ((index & LANE) << 3));
+	}
+
+
+	/**
+	 * Atomically open the position, if it is closed (not open, not marked).
+	 * @param index position.
+	 * @return the cell before opening, FAILED if the cell was not closed.
+	 */
+	private int casOpen(int index)
+	{
+		int shift = (index & LANE) << 3;
+		int i     = index >>> LANE_BITS;
+
+		while (true)
+		{
+			long word = this.cells.get(i);
+			byte cell = (byte) (word >>> shift);
+
+			if (!Cell.isClosed(cell)) // open or marked: nothing to do.
+				return FAILED;
+
+			if (this.cells.compareAndSet(i, word, word | ((long) Cell.OPEN << shift)))
+				return cell & 0xFF;
+		}
+	}
+
+
+	/**
+	 * Atomically toggle the mark of the position, if it isn't open.
+	 * @param index position.
+	 * @return the cell before toggling, FAILED if the cell was open.
+	 */
+	private int casToggle(int index)
+	{
+		int shift = (index & LANE) << 3;
+		int i     = index >>> LANE_BITS;
+
+		while (true)
+		{
+			long word = this.cells.get(i);
+			byte cell = (byte) (word >>> shift);
+
+			if (Cell.isOpen(cell)) // marking not possible anymore.
+				return FAILED;
+
+			if (this.cells.compareAndSet(i, word, word ^ ((long) Cell.MARKED << shift)))
+				return cell & 0xFF;
+		}
+	}
+
+
+	/**
+	 * Add to the cell (to set a mine or count a neighbouring mine).
+	 * @param index position.
+	 * @param delta value to add to the cell's byte.
+	 */
+	private void add(int index, int delta)
+	{
+		int shift = (index & LANE) << 3;
+		int i     = index >>> LANE_BITS;
+
+		while (true)
+		{
+			long word = this.cells.get(i);
+			long cell = (byte) (word >>> shift) + delta;
+			long next = word & ~(0xFFL << shift) | ((cell & 0xFF) << shift);
+
+			if (this.cells.compareAndSet(i, word, next))
+				return;
+		}
+	}
+
+
+	/**
+	 * Clear the field and set the given mines.
+	 * Not concurrent: No other thread may play meanwhile.
+	 * @param mineIndices positions for mines.
+	 * @throws ArrayIndexOutOfBoundsException if a mine is not in the field or there are to many mines.
+	 * @throws NullPointerException if the mine indices are null.
+	 */
+	public void fillMines(int[] mineIndices) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		this.clear();
+
+		if (mineIndices.length >= this.size)
+		{
+			throw new ArrayIndexOutOfBoundsException("Too many mines (max."+(this.size-1)+")");
+		}
+
+		int count = 0;
+		for (int mine : mineIndices)
+		{
+			if (Cell.isMine(this.get(mine)))
+				continue;
+
+			this.add(mine, Cell.MINE);
+			for (int o : this.topology.offsets(mine))
+			{
+				this.add(mine+o, 1);
+			}
+			count += 1;
+		}
+		this.mines = count;
+	}
+
+
+	/**
+	 * Clear the field and place mines randomly.
+	 * Not concurrent: No other thread may play meanwhile.
+	 * @param mines    number of mines.
+	 * @param excluded positions, where no mine is.
+	 * @param placer   chooses the mines' positions.
+	 * @throws ArrayIndexOutOfBoundsException to many mines.
+	 * @throws NullPointerException if excluded or placer are null.
+	 */
+	public void fillRandomly(int mines, int[] excluded, MinePlacer placer) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		this.fillMines(placer.place(this.size, mines, excluded));
+	}
+
+
+	/**
+	 * Clear the field: No mines, all closed.
+	 */
+	private void clear()
+	{
+		for (int i=0; i<this.cells.length(); i++)
+		{
+			this.cells.set(i, 0L);
+		}
+		this.marked.reset();
+		this.opened.reset();
+		this.mines = 0;
+		this.lost  = false;
+	}
+
+
+	/**
+	 * Toggles the mark of the given position.
+	 * @param index position.
+	 * @return true, if the position was marked by this call.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public boolean toggleMark(int index) throws ArrayIndexOutOfBoundsException
+	{
+		this.get(index); // check boundaries.
+
+		if (this.isLost() || this.isWon()) // no updates
+			return false;
+
+		int cell = this.casToggle(index);
+
+		if (cell == FAILED)
+			return false;
+
+		boolean marked = !Cell.isMarked((byte) cell);
+		this.marked.add((marked) ? 1 : -1);
+		return marked;
+	}
+
+
+	/**
+	 * Opens the given position and maybe its zero neighbours.
+	 * Concurrent openings of the same region share the work:
+	 * Every position is opened by exactly one of the threads.
+	 * @param index position.
+	 * @return positions newly opened by this call.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public int[] open(int index) throws ArrayIndexOutOfBoundsException
+	{
+		this.get(index); // check boundaries.
+
+		if (this.isLost() || this.isWon()) // no updates
+			return new int[0];
+
+		int cell = this.casOpen(index);
+
+		if (cell == FAILED) // open, marked or opened by another thread.
+			return new int[0];
+
+		if (Cell.isMine((byte) cell))
+		{
+			this.lost = true;
+			return new int[]{index};
+		}
+
+		this.opened.increment();
+
+		int[] queue = new int[16]; // own queue: flood fills may run concurrently.
+		int   head  = 0;
+		int   tail  = 0;
+
+		queue[tail++] = index;
+
+		while (head < tail)
+		{
+			int n = queue[head++];
+
+			if (0 < Cell.count(this.get(n))) // don't open neighbours.
+				continue;
+
+			for (int o : this.topology.offsets(n))
+			{
+				if (this.casOpen(n+o) == FAILED) // marked, open or taken by another thread.
+					continue;
+
+				this.opened.increment();
+
+				if (queue.length <= tail) // extend.
+				{
+					queue = Arrays.copyOf(queue, 2*queue.length);
+				}
+				queue[tail++] = n+o;
+			}
+		}
+
+		return Arrays.copyOf(queue, tail);
+	}
+
+
+	/**
+	 * Get the state of the position.
+	 * @param index position.
+	 * @return State (open, closed, marked)
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public Field.State getState(int index) throws ArrayIndexOutOfBoundsException
+	{
+		return Cell.state(this.get(index));
+	}
+
+
+	/**
+	 * Get the value of the position, like Field.onPosition().
+	 * @param index position.
+	 * @return count of neighbouring mines, or VALUE_MINE_ON_POS, VALUE_MARKED, VALUE_CLOSED.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public int onPosition(int index) throws ArrayIndexOutOfBoundsException
+	{
+		return Cell.value(this.get(index));
+	}
+
+
+	/**
+	 * Check if a mine was opened.
+	 * @return true, if lost.
+	 */
+	public boolean isLost()
+	{
+		return this.lost;
+	}
+
+
+	/**
+	 * Check if all positions without mines are open.
+	 * @return true, if won.
+	 */
+	public boolean isWon()
+	{
+		return !this.isLost() && this.opened.sum() == this.size - this.mines;
+	}
+
+
+	/**
+	 * Get the count of the mines.
+	 * @return mines count as int.
+	 */
+	public int getMines()
+	{
+		return this.mines;
+	}
+
+
+	/**
+	 * Get the count of the marked positions.
+	 * @return marked positions as int.
+	 */
+	public int getMarked()
+	{
+		return this.marked.intValue();
+	}
+
+
+	/**
+	 * Get the count of the opened positions without a mine.
+	 * @return opened safe positions as int.
+	 */
+	public int getOpened()
+	{
+		return this.opened.intValue();
+	}
+
+
+	/**
+	 * Get the neighbourhood for this field's size.
+	 * @return topology for this field's height and width.
+	 */
+	public Topology getTopology()
+	{
+		return this.topology;
+	}
+
+
+	/**
+	 * Get size as number of positions.
+	 * @return size as int.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+
+	/**
+	 * Get height of this field.
+	 * @return height as int.
+	 */
+	public int getHeight()
+	{
+		return this.topology.height;
+	}
+
+
+	/**
+	 * Get width of this field.
+	 * @return width as int.
+	 */
+	public int getWidth()
+	{
+		return this.topology.width;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "ConcurrentField " + this.getWidth() + "x" + this.getHeight()
+			+ " ("+this.getMarked()+"/"+this.mines+" mines)"
+			+ ((this.lost) ? " LOST" : "");
+	}
+}
@@ -0,0 +1,108 @@
+package nox.minesweeper.logic;
+
+
+
+/**
+ * Class Delta.
+ * The positions of a field which were changed by one move.
+ * The arrays are shared: Do not modify.
+ */
+public class Delta
+{
+	public final static Delta NONE    = new Delta(new int[0], new int[0], new int[0], new int[0], false);
+	public final static Delta RESTART = new Delta(new int[0], new int[0], new int[0], new int[0], true);
+
+	public final int[]   opened;   // newly opened positions.
+	public final int[]   toggled;  // positions which were marked or unmarked.
+	public final int[]   revealed; // mines which were revealed.
+	public final int[]   closed;   // positions which were closed again (undo).
+	public final boolean restart;  // all positions were reset.
+
+
+	/**
+	 * Initiate a new Delta.
+	 * @param opened   newly opened positions.
+	 * @param toggled  marked or unmarked positions.
+	 * @param revealed revealed mines.
+	 * @param restart  if true, all positions have changed.
+	 */
+	protected Delta(int[] opened, int[] toggled, int[] revealed, boolean restart)
+	{
+		this(opened, toggled, revealed, NONE.closed, restart);
+	}
+
+
+	/**
+	 * Initiate a new Delta.
+	 * @param opened   newly opened positions.
+	 * @param toggled  marked or unmarked positions.
+	 * @param revealed revealed mines.
+	 * @param closed   positions closed again.
+	 * @param restart  if true, all positions have changed.
+	 */
+	protected Delta(int[] opened, int[] toggled, int[] revealed, int[] closed, boolean restart)
+	{
+		this.opened   = opened;
+		this.toggled  = toggled;
+		this.revealed = revealed;
+		this.closed   = closed;
+		this.restart  = restart;
+	}
+
+
+	/**
+	 * Initiate a new Delta for opened positions.
+	 * @param opened   newly opened positions.
+	 * @param revealed revealed mines.
+	 * @return Delta of opened and revealed.
+	 */
+	static Delta ofOpened(int[] opened, int[] revealed)
+	{
+		return new Delta(opened, NONE.toggled, revealed, false);
+	}
+
+
+	/**
+	 * Initiate a new Delta for a toggled mark.
+	 * @param index toggled position.
+	 * @return Delta with one toggled position.
+	 */
+	static Delta ofToggled(int index)
+	{
+		return new Delta(NONE.opened, new int[]{index}, NONE.revealed, false);
+	}
+
+
+	/**
+	 * Get the count of changed positions.
+	 * @return number of opened, toggled, revealed and closed positions.
+	 */
+	public int size()
+	{
+		return this.opened.length + this.toggled.length + this.revealed.length + this.closed.length;
+	}
+
+
+	/**
+	 * Check if nothing was changed.
+	 * @return true, if no position was changed.
+	 */
+	public boolean isEmpty()
+	{
+		return !this.restart && this.size() == 0;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		if (this.restart)
+			return "Delta: restart";
+
+		return "Delta:"
+			+ " opened "   + this.opened.length
+			+ " toggled "  + this.toggled.length
+			+ " revealed " + this.revealed.length
+			+ " closed "   + this.closed.length;
+	}
+}
@@ -0,0 +1,186 @@
+package nox.minesweeper.logic;
+
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Class DeltaPublisher.
+ * Publishes the changes (see Delta) of a game to its listeners.
+ *
+ * Every listener has its own executor (e.g. the UI thread) and a bounded queue:
+ * Publishing never waits for a listener. All deltas which are pending when a
+ * listener runs are delivered as one batch. If a listener is too slow and
+ * its queue is full, the pending deltas are dropped and replaced by one
+ * RESTART delta: The listener has to read the whole field again.
+ */
+public class DeltaPublisher
+{
+	/**
+	 * Interface Listener.
+	 * Receives the changes of a game.
+	 */
+	public interface Listener
+	{
+		/**
+		 * Receive the changes since the last call.
+		 * Called by the listener's executor, one call at a time.
+		 * @param batch deltas in the order of the moves.
+		 */
+		public void onDeltas(Delta[] batch);
+	}
+
+
+	/**
+	 * Class Subscription.
+	 * A registered listener with its pending deltas.
+	 */
+	public class Subscription implements Runnable
+	{
+		private final Listener          listener;
+		private final Executor          executor;
+		private final int               capacity;
+		private final ArrayDeque<Delta> pending;   // guarded by this.
+		private boolean                 scheduled; // guarded by this.
+		private volatile boolean        cancelled;
+
+
+		/**
+		 * Initiate a new Subscription.
+		 * @param listener listener to call.
+		 * @param executor executor to call the listener.
+		 * @param capacity maximal number of pending deltas.
+		 */
+		private Subscription(Listener listener, Executor executor, int capacity)
+		{
+			this.listener = listener;
+			this.executor = executor;
+			this.capacity = capacity;
+			this.pending  = new ArrayDeque<Delta>();
+		}
+
+
+		/**
+		 * Add the delta and schedule the listener, if it isn't already.
+		 * @param delta new delta.
+		 */
+		private void offer(Delta delta)
+		{
+			boolean schedule;
+
+			synchronized (this)
+			{
+				if (delta.restart || this.capacity <= this.pending.size()) // overflow: resync.
+				{
+					this.pending.clear();
+					delta = Delta.RESTART;
+				}
+				this.pending.add(delta);
+
+				schedule       = !this.scheduled;
+				this.scheduled = true;
+			}
+
+			if (schedule)
+				this.executor.execute(this);
+		}
+
+
+		/**
+		 * Deliver all pending deltas to the listener.
+		 */
+		@Override
+		public void run()
+		{
+			Delta[] batch;
+
+			synchronized (this)
+			{
+				batch = this.pending.toArray(new Delta[this.pending.size()]);
+				this.pending.clear();
+				this.scheduled = false;
+			}
+
+			if (!this.cancelled && batch.length > 0)
+				this.listener.onDeltas(batch);
+		}
+
+
+		/**
+		 * Stop delivering to the listener.
+		 * Already running deliveries are finished.
+		 */
+		public void cancel()
+		{
+			this.cancelled = true;
+			DeltaPublisher.this.subscriptions.remove(this);
+		}
+
+
+		/**
+		 * Check if the listener was cancelled.
+		 * @return true, if no deltas are delivered anymore.
+		 */
+		public boolean isCancelled()
+		{
+			return this.cancelled;
+		}
+	}
+
+
+	private final CopyOnWriteArrayList<Subscription> subscriptions
+		= new CopyOnWriteArrayList<Subscription>();
+
+
+	/**
+	 * Register a listener.
+	 * @param listener listener to call.
+	 * @param executor calls the listener (e.g. the UI thread).
+	 * @param capacity maximal number of pending deltas, before they are replaced by a RESTART.
+	 * @return the subscription, to cancel it.
+	 * @throws NullPointerException if the listener or the executor are null.
+	 * @throws ArrayIndexOutOfBoundsException if the capacity is less than 1.
+	 */
+	public Subscription subscribe(Listener listener, Executor executor, int capacity)
+	throws NullPointerException, ArrayIndexOutOfBoundsException
+	{
+		if (listener == null || executor == null)
+			throw new NullPointerException("No listener or executor.");
+
+		if (capacity < 1)
+			throw new ArrayIndexOutOfBoundsException("Capacity must be at least 1.");
+
+		Subscription s = new Subscription(listener, executor, capacity);
+		this.subscriptions.add(s);
+		return s;
+	}
+
+
+	/**
+	 * Publish the delta to all listeners.
+	 * Doesn't wait for any listener.
+	 * @param delta changes of a move, empty deltas are not published.
+	 */
+	public void publish(Delta delta)
+	{
+		if (delta.isEmpty())
+			return;
+
+		for (Subscription s : this.subscriptions)
+		{
+			s.offer(delta);
+		}
+	}
+
+
+	/**
+	 * Get the number of registered listeners.
+	 * @return listeners as int.
+	 */
+	public int size()
+	{
+		return this.subscriptions.size();
+	}
+}
@@ -1,17 +1,23 @@
 package nox.minesweeper.logic;
 
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
  * The field.
  * The heart of minesweeper.
+ * Every position is packed into a single byte (see Cell),
+ * a field takes one byte per position (before: ~89 bytes with
+ * Position objects, neighbour arrays, mine and state arrays).
+ *
+ * The cells are kept on the heap, or in a memory-mapped file (see map and load),
+ * so a big board survives restarts without any serialization.
  */
-public class Field
+public class Field implements Board
 {
 	public final static int   MIN = 1; // Field should have at least one/two position.
 	public final static int   DISPLAY_ZERO   = 0;
@@ -23,15 +29,28 @@ public class Field
 	public final static int   VALUE_CLOSED      = Integer.MIN_VALUE;
 	public final static int   VALUE_MARKED      = 9;
 
+	public final static byte  CODE_MINE   = 9;  // display codes (see export), 0-8 for open numbers.
+	public final static byte  CODE_MARKED = 10;
+	public final static byte  CODE_CLOSED = 11;
+
 	private final int  height, width;
 	private final int  hashCode;
 
-	private Position[] pos;
+	private final Topology topology; // shared neighbourhood of this size.
+
+	private final Cells cells; // packed: mine, state and neighbouring mines (see Cell)
+	private int[]      queue; // reused work queue for opening.
 	private boolean    lost;
 	private int[]      minesCnt; // actual #mines, #marked
+	private int        opened;   // opened positions without mine
+	private Frontier   frontier; // neighbour counters and frontier, null until asked.
 
-	private boolean[]  mine;
-	private State[]    state; // position is closed, marked or opened
+	private boolean        publishing; // publish a frame after every move.
+	private long           version;    // version of the last frame.
+	private volatile Frame frame;      // last published frame, read by other threads.
+
+	private int            parallelFrom = Integer.MAX_VALUE; // region size to go on in parallel.
+	private ForkJoinPool   pool;                             // pool for parallel opening.
 
 	private       static char[]    display; // how to display the positions.
 
@@ -47,520 +66,931 @@ public class Field
 
 
 	/**
-	 * Class Position.
-	 * Depends on the current field.
-	 * Capsulated methods like searching neighbours or counting mines.
+	 * Interface IndexVisitor.
+	 * Gets the positions of a query one by one (see forEachWithState).
+	 */
+	public interface IndexVisitor
+	{
+		/**
+		 * Visit a position.
+		 * @param index position.
+		 */
+		void visit(int index);
+	}
+
+
+	/**
+	 * Interface RangeVisitor.
+	 * Gets the opened positions of an opening as ranges in a row (see open(int, RangeVisitor)).
+	 */
+	public interface RangeVisitor
+	{
+		/**
+		 * Visit newly opened positions.
+		 * @param from first opened position.
+		 * @param to   position after the last opened one, in the same row.
+		 * @param wave distance of the opening: 0 for the opened position, then 1, 2, ...
+		 */
+		void opened(int from, int to, int wave);
+	}
+
+
+	/**
+	 * Class Collector.
+	 * Collects visited positions into a growing array.
 	 */
-	private class Position
+	private final static class Collector implements IndexVisitor
 	{
-		public final int    index;
+		private int[] found;
+		private int   len;
 
-		private Position[]  neighbours;
+		Collector(int expected)
+		{
+			this.found = new int[Math.max(16, expected)];
+		}
 
-		private int         minesCnt; // in neighbours.
+		@Override
+		public void visit(int index)
+		{
+			if (this.found.length <= this.len) // extend.
+				this.found = Arrays.copyOf(this.found, 2*this.found.length);
 
+			this.found[this.len++] = index;
+		}
 
-		public Position(int index)
-		throws ArrayIndexOutOfBoundsException
+		int[] get()
 		{
-			if (index<0 || Field.this.size()<=index) // not in field.
+			return (this.found.length == this.len) ? this.found : Arrays.copyOf(this.found, this.len);
+		}
+	}
+
+
+	/**
+	 * Set or remove the mine on the given position.
+	 * The neighbours' counts are updated.
+	 * @param index position.
+	 * @param mine  if true, the position will contain a mine.
+	 */
+	private void setMine(int index, boolean mine)
+	{
+		byte cell = this.cells.get(index);
+
+		if (Cell.isMine(cell) == mine)
+			return;
+
+		int[] os = this.topology.offsets(index);
+		int   d  = (mine) ? 1 : -1;
+
+		this.cells.set(index, (byte) (cell ^ Cell.MINE));
+
+		for (int o : os)
+		{
+			this.cells.set(index+o, (byte) (this.cells.get(index+o) + d));
+		}
+	}
+
+
+	/**
+	 * Count the neighbouring mines of all positions in one pass.
+	 * A 3x3 box sum slides over the rows (three rows are kept),
+	 * every row is read and written once as a whole.
+	 * The positions must be closed and contain only the mine bits.
+	 */
+	private void countMines()
+	{
+		if (this.minesCnt[0] < 1) // nothing to count.
+			return;
+
+		int    w     = this.width;
+		byte[] above = new byte[w]; // cells of the rows r-1, r, r+1
+		byte[] row   = new byte[w];
+		byte[] below = new byte[w];
+		int[]  cols  = new int[w+2]; // mines in the three rows per column, padded.
+
+		this.cells.read(0, row, 0, w);
+
+		for (int r=0; r<this.height; r++)
+		{
+			if (r+1 < this.height) // else: keep zeros.
+				this.cells.read((r+1)*w, below, 0, w);
+			else
+				Arrays.fill(below, (byte) 0);
+
+			for (int c=0; c<w; c++)
+			{
+				cols[c+1] = (above[c]>>>4 & 1) + (row[c]>>>4 & 1) + (below[c]>>>4 & 1);
+			}
+
+			int box = cols[0] + cols[1]; // window for column c: cols[c..c+2]
+
+			for (int c=0; c<w; c++)
 			{
-				throw new ArrayIndexOutOfBoundsException("No such index: "+index);
+				box     += cols[c+2];
+				above[c] = (byte) (row[c] | (box - (row[c]>>>4 & 1))); // without the position itself.
+				box     -= cols[c];
 			}
+			this.cells.write(r*w, above, 0, w);
 
-			this.index         = index;
-			this.reset();
+			byte[] tmp = above; // slide down: the counted row is not needed anymore.
+			above = row;
+			row   = below;
+			below = tmp;
 		}
+	}
 
 
-		@Override public String toString()
+	/**
+	 * Like to String, but only one char.
+	 * @param index position.
+	 * @return char, representing the Position's state.
+	 */
+	private char toChar(int index)
+	{
+		byte cell = this.cells.get(index);
+
+		if (Cell.isOpen(cell)) // show numbers or mine.
 		{
-			if (this.isOpen()) // show numbers or mine.
+			if (Cell.isMine(cell))
 			{
-				if (this.isMine())
-				{
-					return Field.display[Field.DISPLAY_MINE] +"";
-				}
-
-				return (this.minesCnt()<1)
-					?  Field.display[Field.DISPLAY_ZERO] + ""
-					:  this.minesCnt()            + "";
+				return Field.display[Field.DISPLAY_MINE];
 			}
 
-			return (this.isMarked())
-				?  Field.display[Field.DISPLAY_MARKED] + ""
-				:  Field.display[Field.DISPLAY_CLOSED] + "";
-			
+			return (Cell.count(cell)<1)
+				?  Field.display[Field.DISPLAY_ZERO]
+				:  (char) ('0' + Cell.count(cell));
 		}
 
+		return (Cell.isMarked(cell))
+			?  Field.display[Field.DISPLAY_MARKED]
+			:  Field.display[Field.DISPLAY_CLOSED];
+	}
 
-		/**
-		 * Like to String, but only one char.
-		 * @return char, representing the Position's state.
-		 */
-		public char toChar()
+
+	/**
+	 * Show information about this position.
+	 * May be helpful for debugging.
+	 * @param index position.
+	 * @return 
+	 */
+	private String show(int index)
+	{
+		byte   cell = this.cells.get(index);
+		int    max  = String.valueOf(this.size()).length();
+		String s    = String.format("%"+(max)+"s", index);
+
+		s += " "+((Cell.isMine(cell)) ? "X" : Cell.count(cell)) + " ";
+
+		if   (Cell.isMarked(cell)) s+= " ?";
+		if   (Cell.isOpen(cell))   s+= " _";
+
+		for (int n : this.getNeighbours(index)) s += " " + n;
+
+		return s;
+	}
+
+
+	/**
+	 * Initiate a new field for mines.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 */
+	public Field(int height, int width)
+	throws ArrayIndexOutOfBoundsException
+	{
+		this(height, width, null);
+	}
+
+
+	/**
+	 * Initiate a new field on the given cells.
+	 * The counters are restored from the cells.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param cells  stored cells, null for new cells on the heap.
+	 */
+	private Field(int height, int width, Cells cells)
+	throws ArrayIndexOutOfBoundsException
+	{
+		if (height<MIN || width<MIN)
+			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+
+		this.height    = height;
+		this.width     = width;
+		this.hashCode  = (new Integer(width*101 + height*17)).hashCode();
+		this.topology  = Topology.of(height, width);
+
+		this.cells     = (cells!=null) ? cells : new HeapCells(this.height*this.width); // all closed, no mines
+		this.queue     = new int[64];
+
+		this.minesCnt  = new int[]{this.cells.meta(Cells.MINES), this.cells.meta(Cells.MARKED)};
+		this.opened    = this.cells.meta(Cells.OPENED);
+		this.lost      = this.cells.meta(Cells.LOST) != 0;
+
+		Field.display = new char[] {'0', ' ', 'X', '?'};
+	}
+
+
+	/**
+	 * Create a new field, which lives in a memory-mapped file.
+	 * All changes are written into the file; an existing file is overwritten.
+	 * @param file   file for the field.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @return new field with closed positions and without mines.
+	 * @throws IOException if the file cannot be created.
+	 * @throws ArrayIndexOutOfBoundsException if the size is invalid.
+	 */
+	public static Field map(File file, int height, int width)
+	throws IOException, ArrayIndexOutOfBoundsException
+	{
+		if (height<MIN || width<MIN)
+			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+
+		return new Field(height, width, MappedCells.create(file, height, width));
+	}
+
+
+	/**
+	 * Load a field from a file, which was created with map().
+	 * Only the header is read, positions are read from disk when they are touched.
+	 * Further changes are written into the file.
+	 * @param file file of the field.
+	 * @return the stored field.
+	 * @throws IOException if the file cannot be read or is no field.
+	 */
+	public static Field load(File file) throws IOException
+	{
+		MappedCells cells = MappedCells.open(file);
+		return new Field(cells.height(), cells.width(), cells);
+	}
+
+
+	/**
+	 * Write all changes to the file, if this field is mapped.
+	 * Mapped changes are also written by the system without flushing;
+	 * flush to be sure they are on the disk.
+	 */
+	public void flush()
+	{
+		this.cells.flush();
+	}
+
+
+	/**
+	 * Get an independent copy of this field, to try moves on.
+	 * Unchanged parts are shared (copy on write), so forking is cheap:
+	 * It doesn't depend on the field's size, but on the changes afterwards.
+	 * A mapped field is forked onto the heap (all positions are copied).
+	 * Not thread-safe: Don't fork while another thread changes this field.
+	 * @return new field with the same mines, states and counters.
+	 */
+	public Field fork()
+	{
+		Field fork = new Field(this.height, this.width, this.cells.fork());
+
+		fork.minesCnt[0] = this.minesCnt[0];
+		fork.minesCnt[1] = this.minesCnt[1];
+		fork.opened      = this.opened;
+		fork.lost        = this.lost;
+		return fork;
+	}
+
+
+	/**
+	 * Finish a move: Store the counters with the cells (for mapped fields)
+	 * and publish a new frame, if frames are requested.
+	 */
+	private void save()
+	{
+		this.cells.meta(Cells.MINES,  this.minesCnt[0]);
+		this.cells.meta(Cells.MARKED, this.minesCnt[1]);
+		this.cells.meta(Cells.OPENED, this.opened);
+		this.cells.meta(Cells.LOST,   (this.lost) ? 1 : 0);
+
+		if (this.publishing)
 		{
-			return this.toString().charAt(0);
+			this.version += 1;
+			this.frame    = new Frame(this.version, this, this.cells.fork());
 		}
+	}
 
 
-		/**
-		 * Show information about this position.
-		 * May be helpful for debugging.
-		 * @return 
-		 */
-		public String show()
+	/**
+	 * Start or stop publishing frames.
+	 * While publishing, the field publishes an immutable frame after every move:
+	 * Other threads read the last complete move (never a half-applied one) without locks,
+	 * while the changing thread goes on. Only one thread may change the field.
+	 * For mapped fields, every frame is a full copy of the positions.
+	 * @param publishing if true, publish a frame (also now), else stop and drop the last frame.
+	 */
+	public void setPublishing(boolean publishing)
+	{
+		this.publishing = publishing;
+		this.frame      = null;
+
+		if (publishing) // first frame.
 		{
-			int max  = String.valueOf(Field.this.size()).length();
-			String s = String.format("%"+(max)+"s", this.index);
+			this.save();
+		}
+	}
 
-			s += " "+((this.isMine()) ? "X" : this.minesCnt()) + " ";
 
-			if   (this.isMarked()) s+= " ?";
-			if   (this.isOpen())   s+= " _";
+	/**
+	 * Get the last published frame.
+	 * May be called from any thread.
+	 * @return immutable frame of the last move, null if the field doesn't publish.
+	 */
+	public Frame getFrame()
+	{
+		return this.frame;
+	}
 
-			for (Position p : neighbours()) s += " " + p.index;
 
-			return s;
+	@Override
+	public String toString()
+	{
+		return "Field " + this.width + "x" + this.height
+			+ " ("+minesCnt[1]+"/"+minesCnt[0]+" mines)"
+			+ ((lost) ? " LOST" : "");
+	}
+
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return o!=null && o instanceof Field
+			&& ((Field)o).height == this.height
+			&& ((Field)o).width  == this.width
+			;
+	}
+
+
+	@Override
+	public int hashCode()
+	{
+		return this.hashCode;
+	}
+
+
+	/**
+	 * Get the index for the certain row/column comination.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return index for position with on given row and column.
+	 */
+	protected int indexOf(int row, int col) throws ArrayIndexOutOfBoundsException
+	{
+		if (row<0 || this.getHeight()<=row)
+			throw new ArrayIndexOutOfBoundsException("Invalid row");
+
+		if (col<0 || this.getWidth()<=col)
+			throw new ArrayIndexOutOfBoundsException("Invalid column");
+
+		int index = row*this.getWidth()+col; 
+		return index;
+	}
+
+
+	/**
+	 * Get the packed cell of a certain index.
+	 * If out of boundary throw an error.
+	 * @param  index to get.
+	 * @throws ArrayIndexOutOfBoundsException if the index is out of range
+	 * @return packed cell as byte.
+	 */
+	private byte get(int index) throws ArrayIndexOutOfBoundsException
+	{
+		if (index<0 || this.size()<=index) // not in field.
+		{
+			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
 		}
+		return this.cells.get(index);
+	}
+
+
+	/**
+	 * Toggles the mark of the given position.
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return true, if position is marked now.
+	 */
+	public boolean toggleMark(int row, int col) throws ArrayIndexOutOfBoundsException
+	{
+		return this.toggleMark(this.indexOf(row,col));
+	}
 
 
-		@Override public int hashCode()
+	/**
+	 * Toggles the mark of the given position.
+	 * @param index index of Position to open.
+	 * @return true, if position is marked now.
+	 */
+	public boolean toggleMark(int index) throws ArrayIndexOutOfBoundsException
+	{
+		if (this.isLost() || this.isWon()) // no updates
 		{
-			return this.index;
+			return false; // not marked, because there's nothing.
 		}
 
+		byte cell = this.get(index);
 
-		@Override public boolean equals(Object o)
+		if (Cell.isOpen(cell)) // marking not possible anymore.
 		{
-			return o!=null && o instanceof Position
-				&& this.index == ((Position)o).index;
+			return false;
 		}
 
+		this.change(index, cell, (byte) (cell ^ Cell.MARKED));
+		this.minesCnt[1] += (Cell.isMarked(cell)) ? -1 : 1;
+		this.save();
 
-		/**
-		 * Get the neighbours.
-		 * May initiate them.
-		 * @return neighbours as Position array.
-		 */
-		public Position[] neighbours()
+		return !Cell.isMarked(cell);
+	}
+
+
+	/**
+	 * Opens all mines and set as this as lost.
+	 * @return array of all mines.
+	 */
+	public int[] reveal()
+	{
+		this.lost  = true;
+
+		int[] mines = this.cells.indices(Cell.MINE, Cell.MINE, this.minesCnt[0]); // all mines' indices.
+
+		for (int m : mines)
 		{
-			if (this.neighbours==null)
-			{
-				Field         f     = Field.this;
-				Position      p     = null;
-				Position[]    ps    = new Position[8];
-				int           psLen = 0;
-
-				boolean isOuterLeft, isOuterRight, isTop, isBottom;
-				isOuterLeft  = this.index % f.width == 0;
-				isOuterRight = this.index % f.width == f.width-1;
-				isTop        = this.index < f.width;
-				isBottom     = this.index > f.size() - f.width+1;
-
-				for (int row : new int[]{-1,0,1})
-				{
-					for (int col : new int[]{-1,0,1})
-					{
-						/*This is on edge: No neighbours above|below.*/
-						if ((isTop && row<0) || (isBottom && row>0))
-							continue;
+			this.open(m, this.cells.get(m)); // force to open.
+		}
+		this.save();
 
-						/*This is on edge: No neighbours left|right.*/
-						if ((isOuterLeft && col<0) || (isOuterRight && col>0))
-							continue;
+		return mines;
+	}
 
-						/*Own Index: Not a neighbour.*/
-						if (row==0 && col==0)
-							continue;
 
-						try
-						{
-							p = f.get(this.index + row*f.width + col);
-							ps[psLen] = p;
-							psLen++;
-						}
-						catch (ArrayIndexOutOfBoundsException e)
-						{}
-						catch (NullPointerException e)
-						{}
-					}
-				}
-				this.neighbours = new Position[psLen];
-				System.arraycopy(ps, 0, this.neighbours, 0, psLen);
-			}
-			return this.neighbours;
+	/**
+	 * Oopen given position and maybe it's zero neighbours.
+	 * Proxy for open(intex).
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return array of newky opened positons.
+	 * @throws ArrayIndexOutOfBoundsException if calculated index is not in boundaries.
+	 */
+	public int[] open(int row, int col) throws ArrayIndexOutOfBoundsException
+	{
+		return this.open(this.indexOf(row,col));
+	}
+
+
+	/**
+	 * Opens given Position and maybe it's zero-neighbours.
+	 * @param index index of Position to open.
+	 * @return array of newly opened positions (indices).
+	 */
+	public int[] open(int index) throws ArrayIndexOutOfBoundsException
+	{
+		byte cell = this.get(index);
+
+		if (this.isLost() || this.isWon() || !Cell.isClosed(cell)) // no updates: marked or already open.
+		{
+			return new int[0];
 		}
 
+		int opened = this.opening(index, cell);
+		this.save();
 
-		/**
-		 * Count the mines in the neighbourhood and self.
-		 * @return number of mines near this position (int).
-		 */
-		public int minesCnt()
+		return Arrays.copyOf(this.queue, opened);
+	}
+
+
+	/**
+	 * Open the given position and maybe it's zero-neighbours, without saving.
+	 * @param index index of the position to open, not marked.
+	 * @param cell  current packed cell of the position.
+	 * @return number of newly opened positions, they are at the start of this.queue.
+	 */
+	private int opening(int index, byte cell)
+	{
+		boolean  zero = !Cell.isMine(cell) && Cell.count(cell) < 1;
+		this.lost     = !this.open(index, cell); // p safly opened.
+
+		/*Given Index: Position without mines: Open unblocked neighbours.
+		 *The queue holds all newly opened positions, the open bit marks them as visited.*/
+		int[] queue = this.queue;
+		int   head  = 0;
+		int   tail  = 0;
+
+		queue[tail++] = index;
+
+		if (!zero) // finised opening.
+		{
+			return tail;
+		}
+
+		while (head < tail)
 		{
-			if (this.minesCnt < 0) // initiate counting mines in neighbourhood
+			if (this.parallelFrom <= tail) // big region: expand the rest in parallel.
 			{
-				if (this.isMine()) // this is a mine: mines in "neigbourhood" is max.
+				int[] rest = ParallelFill.expand(this.cells, this.topology,
+						Arrays.copyOfRange(queue, head, tail),
+						(this.pool!=null) ? this.pool : ForkJoinPool.commonPool());
+
+				for (int r : rest)
 				{
-					this.minesCnt = Field.VALUE_MINE_ON_POS;
+					byte c = this.cells.get(r);
+					this.change(r, c, (byte) (c | Cell.OPEN));
 				}
+				this.opened += rest.length;
 
-				else // this is not a mine: count neighbours.
+				if (queue.length < tail + rest.length) // extend.
 				{
-					this.minesCnt = 0;
-					for (Position n : this.neighbours())
-					{
-						if (n!=null && n.isMine()) this.minesCnt += 1;
-					}
+					queue = this.queue = Arrays.copyOf(queue, tail + rest.length);
 				}
+				System.arraycopy(rest, 0, queue, tail, rest.length);
+				tail += rest.length;
+				break;
 			}
-			return this.minesCnt;
-		}
 
+			int n = queue[head++];
 
-		/**
-		 * Check if this is a mine.
-		 * @return 
-		 */
-		public boolean isMine()
-		{
-			return Field.this.mine[this.index];
-		}
+			if (0 < Cell.count(this.cells.get(n))) // don't open neighbours.
+				continue;
 
+			/*Open also n's neighbours, because n is "0" (so they are no mines).*/
+			for (int o : this.topology.offsets(n))
+			{
+				byte c = this.cells.get(n+o);
 
-		/**
-		 * Set this positions as mine or not.
-		 * @param mine if true, this position will contain a mine.
-		 */
-		public void setMine(boolean mine)
-		{
-			Field.this.mine[this.index] = mine;
-		}
+				if (!Cell.isClosed(c)) // marked or already open.
+					continue;
 
+				this.change(n+o, c, (byte) (c | Cell.OPEN));
+				this.opened    += 1;
 
-		/**
-		 * Check if this Position is already opend.
-		 * @return true if open. (marking not possible anymore)
-		 */
-		public boolean isOpen()
-		{
-			return Field.this.state[this.index] == State.OPEN;
+				if (queue.length <= tail) // extend.
+				{
+					queue = this.queue = Arrays.copyOf(queue, 2*queue.length);
+				}
+				queue[tail++] = n+o;
+			}
 		}
+		return tail;
+	}
 
 
-		/**
-		 * Check if this Position is marked.
-		 * @return if true, this is marked and can't be opend.
-		 */
-		public boolean isMarked()
+	/**
+	 * Apply a list of moves at once.
+	 * The moves are applied in order, like single calls of open and toggleMark,
+	 * but the field is saved (and the frame published) only once, after the last move.
+	 * Moves after a lost or won move are ignored.
+	 * @param moves moves to apply.
+	 * @return all changes of the moves, in one delta.
+	 * @throws ArrayIndexOutOfBoundsException if a move's position is not in the field (nothing is applied).
+	 * @throws NullPointerException if moves is null.
+	 */
+	public Delta apply(Moves moves) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		for (int i=0; i<moves.size(); i++) // all or nothing.
 		{
-			return Field.this.state[this.index] == State.MARKED;
+			this.get(moves.index(i));
 		}
 
+		int[] opened  = new int[Math.max(8, moves.size())];
+		int[] toggled = new int[8];
+		int   oLen    = 0;
+		int   tLen    = 0;
 
-		/**
-		 * Toggle marked state.
-		 * If it was marked, then unmark, else mark.
-		 * Doesn't mark, if already open.
-		 */
-		public void toggleMark()
+		for (int i=0; i<moves.size() && !this.isLost() && !this.isWon(); i++)
 		{
-			switch(Field.this.state[this.index])
+			int  index = moves.index(i);
+			byte cell  = this.cells.get(index);
+
+			switch (moves.kind(i))
 			{
-				case CLOSED: Field.this.state[this.index] = State.MARKED; break;
-				case MARKED: Field.this.state[this.index] = State.CLOSED; break;
-				default: break;
+				case Moves.MARK:
+				case Moves.TOGGLE:
+					if (Cell.isOpen(cell)) // marking not possible anymore.
+						break;
+
+					if (moves.kind(i) == Moves.MARK && Cell.isMarked(cell)) // already marked.
+						break;
+
+					this.change(index, cell, (byte) (cell ^ Cell.MARKED));
+					this.minesCnt[1] += (Cell.isMarked(cell)) ? -1 : 1;
+
+					if (toggled.length <= tLen) // extend.
+						toggled = Arrays.copyOf(toggled, 2*tLen);
+
+					toggled[tLen++] = index;
+					break;
+
+				case Moves.CHORD:
+					int needed = Cell.count(cell);
+
+					if (!Cell.isOpen(cell) || Cell.isMine(cell) || needed < 1) // no number.
+						break;
+
+					int[] offsets = this.topology.offsets(index);
+
+					for (int o : offsets) // count marked neighbours.
+					{
+						needed -= (Cell.isMarked(this.cells.get(index+o))) ? 1 : 0;
+					}
+
+					if (needed != 0) // not satisfied.
+						break;
+
+					for (int o : offsets) // open the others.
+					{
+						byte c = this.cells.get(index+o);
+
+						if (!Cell.isClosed(c) || this.isLost()) // marked, already open, or lost.
+							continue;
+
+						int n = this.opening(index+o, c);
+
+						if (opened.length < oLen + n) // extend.
+							opened = Arrays.copyOf(opened, 2*(oLen + n));
+
+						System.arraycopy(this.queue, 0, opened, oLen, n);
+						oLen += n;
+					}
+					break;
+
+				default: // open.
+					if (!Cell.isClosed(cell)) // marked or already open.
+						break;
+
+					int count = this.opening(index, cell);
+
+					if (opened.length < oLen + count) // extend.
+						opened = Arrays.copyOf(opened, 2*(oLen + count));
+
+					System.arraycopy(this.queue, 0, opened, oLen, count);
+					oLen += count;
+					break;
 			}
 		}
+		this.save();
 
+		return new Delta(Arrays.copyOf(opened, oLen), Arrays.copyOf(toggled, tLen), Delta.NONE.revealed, false);
+	}
 
-		/**
-		 * Open this Position: Show it's mines count or lose game.
-		 * @return true, if this wasn't a mine (opening was safe).
-		 */
-		public boolean open()
+
+	/**
+	 * Opens given Position and maybe it's zero-neighbours, without a result array.
+	 * The opened positions are reported wave by wave (growing distance to the
+	 * given position) as ranges in a row, so a renderer can draw the opening
+	 * progressively. Regions of zeros are opened row span by row span.
+	 * Nothing is allocated, besides growing the reused work queue.
+	 * @param index   index of Position to open.
+	 * @param visitor gets the newly opened ranges.
+	 * @return number of newly opened positions.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 * @throws NullPointerException if the visitor is null.
+	 */
+	public int open(int index, RangeVisitor visitor) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		if (visitor == null)
+			throw new NullPointerException("No visitor.");
+
+		byte cell = this.get(index);
+
+		if (this.isLost() || this.isWon() || !Cell.isClosed(cell)) // no updates
 		{
-			if (!this.isMarked() || this.isOpen())
-			{
-				Field.this.state[this.index] = State.OPEN;
-			}
-			return !this.isMine();
+			return 0;
 		}
 
+		this.lost = !this.open(index, cell);
+		visitor.opened(index, index+1, 0);
 
-		/**
-		 * Resets the Position state.
-		 * Close and unmark.
-		 * Remove mine, if there was one and reset mines count.
-		 */
-		public void reset()
+		if (Cell.isMine(cell) || 0 < Cell.count(cell)) // finised opening.
 		{
-			Field.this.mine[this.index]  = false;
-			Field.this.state[this.index] = State.CLOSED;
-			this.minesCnt  = -1;
+			this.save();
+			return 1;
 		}
-	}
 
+		/*The queue holds spans (from, to) of newly opened zeros in a row,
+		 *their neighbours in the rows above, below and next to them are opened next.*/
+		int[] spans   = this.queue;
+		int   head    = 0;
+		int   tail    = 0;
+		int   count   = 1;
+		int   wave    = 1;
+		int   waveEnd = 2;
 
+		spans[tail++] = index;
+		spans[tail++] = index+1;
 
-	/**
-	 * Initiate a new field for mines.
-	 * @param height height of field.
-	 * @param width  width of field.
-	 */
-	public Field(int height, int width)
-	throws ArrayIndexOutOfBoundsException
-	{
-		if (height<MIN || width<MIN)
-			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+		while (head < tail)
+		{
+			if (head == waveEnd) // next wave.
+			{
+				wave   += 1;
+				waveEnd = tail;
+			}
 
-		this.height    = height;
-		this.width     = width;
-		this.hashCode  = (new Integer(width*101 + height*17)).hashCode();
+			int from = spans[head++];
+			int to   = spans[head++];
+			int row  = from / this.width;
+			int a    = from - row*this.width;
+			int b    = to   - row*this.width;
 
-		this.minesCnt  = new int[]{0,0}; // 0 minesCnt, 0 undiscovered1
-		this.pos       = new Position[this.height*this.width];
+			for (int r=Math.max(row-1, 0); r<=row+1 && r<this.height; r++)
+			{
+				int base = r*this.width;
+				int end  = Math.min(b+1, this.width);
 
-		this.mine      = new boolean[this.size()];
-		this.state     = new State[this.size()];
+				for (int c=Math.max(a-1, 0); c<end; c++)
+				{
+					if (!Cell.isClosed(this.cells.get(base+c)))
+						continue;
 
-		for (int i=0; i<this.size(); i++) // initate positions
-			this.pos[i] = this.get(i);
+					/*Closed range, extended along zeros (their neighbours are opened too).*/
+					int s = c;
+					int e = c;
 
-		this.lost     = false;
-		Field.display = new char[] {'0', ' ', 'X', '?'};
-	}
+					while (0<s && Cell.isClosed(this.cells.get(base+s-1)) && isZero(this.cells.get(base+s)))
+						s--;
 
+					while (e<this.width && Cell.isClosed(this.cells.get(base+e))
+							&& (e<end || isZero(this.cells.get(base+e-1))))
+						e++;
 
-	@Override
-	public String toString()
-	{
-		return "Field " + this.width + "x" + this.height
-			+ " ("+minesCnt[1]+"/"+minesCnt[0]+" mines)"
-			+ ((lost) ? " LOST" : "");
-	}
+					visitor.opened(base+s, base+e, wave);
+					count += e-s;
+
+					/*Open the range, collect the zeros as new spans.*/
+					int zero = -1;
+
+					for (int p=s; p<=e; p++)
+					{
+						byte    old = (p<e) ? this.cells.get(base+p) : 0;
+						boolean z   = p<e && isZero(old);
+
+						if (p<e)
+						{
+							this.change(base+p, old, (byte) (old | Cell.OPEN));
+							this.opened += 1;
+						}
 
+						if (z && zero<0) // span starts.
+						{
+							zero = p;
+						}
+						else if (!z && 0<=zero) // span ends.
+						{
+							if (spans.length < tail+2) // extend.
+							{
+								spans = this.queue = Arrays.copyOf(spans, 2*spans.length);
+							}
+							spans[tail++] = base+zero;
+							spans[tail++] = base+p;
+							zero          = -1;
+						}
+					}
+					c = e;
+				}
+			}
+		}
+		this.save();
 
-	@Override
-	public boolean equals(Object o)
-	{
-		return o!=null && o instanceof Field
-			&& ((Field)o).height == this.height
-			&& ((Field)o).width  == this.width
-			;
+		return count;
 	}
 
 
-	@Override
-	public int hashCode()
+	/**
+	 * Check if a position has no mine and no neighbouring mines.
+	 * @param cell packed cell.
+	 * @return true, if the cell is a zero.
+	 */
+	private static boolean isZero(byte cell)
 	{
-		return this.hashCode;
+		return (cell & (Cell.MINE|Cell.COUNT)) == 0;
 	}
 
 
 	/**
-	 * Get the index for the certain row/column comination.
-	 * @param row row of position.
-	 * @param col column of position.
-	 * @return index for position with on given row and column.
+	 * Open big regions in parallel.
+	 * If an opening reaches the given number of positions, the rest of the
+	 * region is expanded on the pool. The opened positions are the same as
+	 * with the sequential opening, their order in the result may differ.
+	 * Only the changing thread may use the field meanwhile.
+	 * @param threshold opened positions to go on in parallel, Integer.MAX_VALUE for never.
+	 * @param pool      pool for the parallel opening, null for the common pool.
+	 * @throws ArrayIndexOutOfBoundsException if threshold is less than 1.
 	 */
-	protected int indexOf(int row, int col) throws ArrayIndexOutOfBoundsException
+	public void setParallelFill(int threshold, ForkJoinPool pool) throws ArrayIndexOutOfBoundsException
 	{
-		if (row<0 || this.getHeight()<=row)
-			throw new ArrayIndexOutOfBoundsException("Invalid row");
-
-		if (col<0 || this.getWidth()<=col)
-			throw new ArrayIndexOutOfBoundsException("Invalid column");
+		if (threshold < 1)
+			throw new ArrayIndexOutOfBoundsException("Threshold must be at least 1.");
 
-		int index = row*this.getWidth()+col; 
-		return index;
+		this.parallelFrom = threshold;
+		this.pool         = pool;
 	}
 
 
 	/**
-	 * Get the Position of a certain position.
-	 * @param row row of position.
-	 * @param col column of position.
-	 * @throws ArrayIndexOutOfBoundsException if the index is out of range
-	 * @return 
+	 * Change the state of a position (open or mark), and its neighbours' counters.
+	 * @param index position.
+	 * @param cell  current packed cell of the position.
+	 * @param now   new packed cell.
 	 */
-	private Position get(int row, int col) throws ArrayIndexOutOfBoundsException
+	private void change(int index, byte cell, byte now)
 	{
-		return this.get(this.indexOf(row,col));
+		this.cells.set(index, now);
+
+		if (this.frontier != null) // counters are kept.
+			this.frontier.changed(this.cells, index, cell, now);
 	}
 
 
 	/**
-	 * Get the Position of a certain index.
-	 * If out of boundary throw an error.
-	 * @param  index to get.
-	 * @throws ArrayIndexOutOfBoundsException if the index is out of range
-	 * @return 
+	 * Open the given position, if it's not marked.
+	 * @param index position.
+	 * @param cell  current packed cell of the position.
+	 * @return true, if this wasn't a mine (opening was safe).
 	 */
-	private Position get(int index) throws ArrayIndexOutOfBoundsException
+	private boolean open(int index, byte cell)
 	{
-		if (index<0 || this.size()<=index) // not in field.
-		{
-			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
-		}
-
-		Position p = this.pos[index];
-		if (p == null) // not initiated.
+		if (!Cell.isMarked(cell) && !Cell.isOpen(cell))
 		{
-			this.pos[index] = new Position(index);
+			this.change(index, cell, (byte) (cell | Cell.OPEN));
+			this.opened      += (Cell.isMine(cell)) ? 0 : 1;
 		}
-		return this.pos[index];
+		return !Cell.isMine(cell);
 	}
 
 
 	/**
-	 * Toggles the mark of the given position.
-	 * @param row row of position.
-	 * @param col column of position.
-	 * @return true, if position is marked now.
+	 * Close an open position again (undo), without saving.
+	 * Closing a mine takes back the loss.
+	 * @param index position.
 	 */
-	public boolean toggleMark(int row, int col) throws ArrayIndexOutOfBoundsException
+	void close(int index)
 	{
-		return this.toggleMark(this.indexOf(row,col));
+		byte cell = this.cells.get(index);
+
+		if (!Cell.isOpen(cell)) // nothing to undo.
+			return;
+
+		this.change(index, cell, (byte) (cell & ~Cell.OPEN));
+
+		if (Cell.isMine(cell)) this.lost    = false;
+		else                   this.opened -= 1;
 	}
 
 
 	/**
-	 * Toggles the mark of the given position.
-	 * @param index index of Position to open.
-	 * @return true, if position is marked now.
+	 * Open a closed position again (redo), without its neighbours and without saving.
+	 * @param index position.
 	 */
-	public boolean toggleMark(int index) throws ArrayIndexOutOfBoundsException
+	void reopen(int index)
 	{
-		if (this.isLost() || this.isWon()) // no updates
-		{
-			return false; // not marked, because there's nothing.
-		}
+		byte cell = this.cells.get(index);
 
-		Position p = this.get(index);
-		p.toggleMark();
+		if (!Cell.isClosed(cell)) // marked or already open.
+			return;
 
-		this.minesCnt[1] = this.minesCnt[1] + ((this.pos[index].isMarked() ? 1 : -1));
-
-		return this.pos[index].isMarked();
+		this.lost |= !this.open(index, cell);
 	}
 
 
 	/**
-	 * Opens all mines and set as this as lost.
-	 * @return array of all mines.
+	 * Toggle the mark of a closed position (undo and redo), without saving.
+	 * @param index position.
 	 */
-	public int[] reveal()
+	void flip(int index)
 	{
-		this.lost  = true;
-
-		int[] mines, tmp;
-		int   cnt;
+		byte cell = this.cells.get(index);
 
-		tmp = new int[this.size()];
-		cnt = 0;
+		if (Cell.isOpen(cell)) // marking not possible.
+			return;
 
-		for (int i=0; i<mine.length; i++) // search for all mines' indices.
-		{
-			if (mine[i])
-			{
-				tmp[cnt] = i;
-				cnt     += 1;
-				this.get(i).open(); // force to open.
-			}
-		}
-
-		mines = new int[cnt];
-
-		System.arraycopy(tmp,0, mines, 0, cnt);
-		return mines;
+		this.change(index, cell, (byte) (cell ^ Cell.MARKED));
+		this.minesCnt[1] += (Cell.isMarked(cell)) ? -1 : 1;
 	}
 
 
 	/**
-	 * Oopen given position and maybe it's zero neighbours.
-	 * Proxy for open(intex).
-	 * @param row row of position.
-	 * @param col column of position.
-	 * @return array of newky opened positons.
-	 * @throws ArrayIndexOutOfBoundsException if calculated index is not in boundaries.
+	 * Set or take back the loss (undo and redo), saved if it changes.
+	 * @param lost true, if the game is lost.
 	 */
-	public int[] open(int row, int col) throws ArrayIndexOutOfBoundsException
+	void setLost(boolean lost)
 	{
-		return this.open(this.indexOf(row,col));
+		if (this.lost == lost)
+			return;
+
+		this.lost = lost;
+		this.save();
 	}
 
 
 	/**
-	 * Opens given Position and maybe it's zero-neighbours.
-	 * @param index index of Position to open.
-	 * @return array of newly opened positions (indices).
+	 * Save the field after closing, reopening and flipping.
 	 */
-	public int[] open(int index) throws ArrayIndexOutOfBoundsException
+	void commit()
 	{
-		if (this.isLost() || this.isWon() || this.pos[index].isMarked()) // no updates
-		{
-			return new int[0];
-		}
-
-		Position p    = this.get(index);
-		boolean  zero = p.minesCnt() < 1;
-		this.lost     = !p.open(); // p safly opened.
-
-		if (!zero) // finised opening.
-		{
-			return new int[]{index};
-		}
-
-		List<Integer>  nowOpen    = new ArrayList<Integer>();
-		List<Position> neighbours = new ArrayList<Position>();
-
-		nowOpen.add(p.index);
-
-		for (Position n : p.neighbours()) // initial neighbours.
-			neighbours.add(n);
-
-		/*Given Index: Position without mines: Open unblocked neighbours.*/
-		Set<Position> newDiscovered = new HashSet<Position>();
-		while (!neighbours.isEmpty() && !this.lost)
-		{
-			for (Position n : neighbours)
-			{
-				if (n==null||n.isMarked()||n.isOpen()||nowOpen.contains(n.index))
-					continue;
-
-				this.lost = !n.open(); // open safly?
-				nowOpen.add(n.index);
-
-				if (this.lost) // Lost: Stop Opening
-					break;
-
-				if (0 < n.minesCnt()) // don't open neighbours.
-					continue;
-
-				/*Open also n's neighbours, because n is also "0".*/
-				for (Position nn : n.neighbours())
-				{
-					if (nn==null || nn.isMarked() || nn.isOpen())
-						continue;
-
-					if (nowOpen.contains(nn.index)) // skip
-						continue;
-
-					newDiscovered.add(nn);
-				}
-			}
-			neighbours.clear(); // remove recently watched.
-			neighbours.addAll(newDiscovered);
-			newDiscovered.clear();
-		}
-
-		int[] tmp = new int[nowOpen.size()];
-		for (int i=0; i<nowOpen.size(); i++)
-			tmp[i] = nowOpen.get(i);
-
-		return tmp;
+		this.save();
 	}
 
 
@@ -585,7 +1015,27 @@ public class Field
 	 */
 	public State getState(int index) throws ArrayIndexOutOfBoundsException
 	{
-		return this.state[index];
+		return Cell.state(this.get(index));
+	}
+
+
+	/**
+	 * Copy the display codes of a rectangle (viewport) into the given array.
+	 * Open positions get their count of neighbouring mines (0-8),
+	 * the others CODE_MINE, CODE_MARKED or CODE_CLOSED.
+	 * The codes are stored row by row: dst[off + r*cols + c].
+	 * @param row  first row.
+	 * @param col  first column.
+	 * @param rows number of rows.
+	 * @param cols number of columns.
+	 * @param dst  array to fill with rows*cols codes, may be reused.
+	 * @param off  first index in dst.
+	 * @throws ArrayIndexOutOfBoundsException if the rectangle is not in the field, or dst is too short.
+	 * @throws NullPointerException if dst is null.
+	 */
+	public void export(int row, int col, int rows, int cols, byte[] dst, int off) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		this.cells.codes(this.width, row, col, rows, cols, dst, off);
 	}
 
 
@@ -610,12 +1060,7 @@ public class Field
 	 */
 	public int onPosition(int index) throws ArrayIndexOutOfBoundsException
 	{
-		Position p = this.pos[index];
-		if (!p.isOpen())
-		{
-			return (p.isMarked()) ? Field.VALUE_MARKED : Field.VALUE_CLOSED;
-		}
-		return p.minesCnt();
+		return Cell.value(this.get(index));
 	}
 
 
@@ -635,20 +1080,7 @@ public class Field
 	 */
 	public boolean isWon()
 	{
-		if (this.isLost())
-		{
-			return false;
-		}
-
-		for (int i=0; i<this.size(); i++)
-		{
-			if (this.state[i] != State.OPEN && !this.mine[i])
-			{
-				return false;
-			}
-		}
-
-		return true;
+		return !this.isLost() && this.opened == this.size() - this.minesCnt[0];
 	}
 
 
@@ -659,24 +1091,41 @@ public class Field
 	 * @throws ArrayIndexOutOfBoundsException except fails or to many mines.
 	 */
 	public void fillRandomly(int minesCnt, int except) throws ArrayIndexOutOfBoundsException
+	{
+		this.fillRandomly(minesCnt, (except<0) ? new int[0] : new int[]{except}, new MinePlacer());
+	}
+
+
+	/**
+	 * Clear and Fill the field with minesCnt.
+	 * Use getNeighbourhood(index) to keep a whole first click neighbourhood free.
+	 * @param minesCnt number of new minesCnt.
+	 * @param excluded indices, where no mine is.
+	 * @param placer   chooses the mines' positions (and holds the generator).
+	 * @throws ArrayIndexOutOfBoundsException to many mines.
+	 * @throws NullPointerException if excluded or placer are null.
+	 */
+	public void fillRandomly(int minesCnt, int[] excluded, MinePlacer placer) throws ArrayIndexOutOfBoundsException, NullPointerException
 	{
 		this.clear();
 
-		if (this.size() <= minesCnt) // too many mines. => NullPointerException
+		try
 		{
-			throw new ArrayIndexOutOfBoundsException("Too many mines (max."+this.size()+")");
-		}
+			if (this.size() <= minesCnt) // too many mines.
+			{
+				throw new ArrayIndexOutOfBoundsException("Too many mines (max."+this.size()+")");
+			}
 
-		while (this.minesCnt[0]<minesCnt)
+			for (int index : placer.place(this.size(), minesCnt, excluded))
+			{
+				this.cells.set(index, Cell.MINE); // count later.
+			}
+			this.minesCnt[0] = Math.max(0, minesCnt);
+		}
+		finally // also the cleared field.
 		{
-			int index = (int) (Math.random()*this.size());
-			
-			if (index==except || this.get(index).isMine())
-				continue;
-
-			this.get(index).setMine(true);
-
-			this.minesCnt[0]=this.minesCnt[0]+1;
+			this.countMines();
+			this.save();
 		}
 	}
 
@@ -703,20 +1152,26 @@ public class Field
 	{
 		this.clear();
 
-		if (mineIndices.length -1 >= this.size())
-		{
-			throw new ArrayIndexOutOfBoundsException("Too many mines (max."+this.size()+")");
-		}
-
-		for (int mine : mineIndices)
+		try
 		{
-			Position pos = this.get(mine);
+			if (mineIndices.length -1 >= this.size())
+			{
+				throw new ArrayIndexOutOfBoundsException("Too many mines (max."+this.size()+")");
+			}
 
-			if (pos.isMine())
-				continue;
+			for (int mine : mineIndices)
+			{
+				if (Cell.isMine(this.get(mine)))
+					continue;
 
-			pos.setMine(true);
-			this.minesCnt[0] += 1;
+				this.cells.set(mine, Cell.MINE); // count later.
+				this.minesCnt[0] += 1;
+			}
+		}
+		finally // also the cleared field.
+		{
+			this.countMines();
+			this.save();
 		}
 	}
 
@@ -726,12 +1181,14 @@ public class Field
 	 */
 	private void clear()
 	{
-		for (Position p: pos)
-		{
-			p.reset(); // resets the position
-		}
+		if (this.minesCnt[0] == 0 && this.minesCnt[1] == 0 && this.opened == 0 && !this.lost)
+			return; // already clear: nothing placed, marked or opened.
+
+		this.cells.fill((byte) 0); // closed, unmarked, no mines
+		this.frontier    = null;   // counted again, if asked.
 		this.minesCnt[0] = 0;
 		this.minesCnt[1] = 0;
+		this.opened      = 0;
 		this.lost        = false;
 	}
 
@@ -746,6 +1203,16 @@ public class Field
 	}
 
 
+	/**
+	 * Get the count of the opened positions without a mine.
+	 * @return opened safe positions as int.
+	 */
+	public int getOpened()
+	{
+		return this.opened;
+	}
+
+
 	/**
 	 * Get the count of the mines.
 	 * @return mines count in field as int.
@@ -762,25 +1229,7 @@ public class Field
 	 */
 	public int[] getMineIndices()
 	{
-		int     len;
-		int[]   tmp, requested;
-
-		tmp = new int[this.size()];
-		len = 0;
-
-		for (int i=0; i<this.size(); i++)
-		{
-			if (!this.pos[i].isMine())
-				continue;
-
-			tmp[len] = i;
-			len++;
-		}
-
-		requested = new int[len];
-		System.arraycopy(tmp, 0, requested, 0, len);
-
-		return requested;
+		return this.cells.indices(Cell.MINE, Cell.MINE, this.minesCnt[0]);
 	}
 
 
@@ -792,26 +1241,150 @@ public class Field
 	 */
 	public int[] getWithState(State s, int min)
 	{
-		int     len;
-		int[]   tmp, requested;
-		boolean useMin = s == State.OPEN && 0<min; // else useless
+		int expected;
+
+		switch (s)
+		{
+			case OPEN:   expected = this.opened+1;    break;
+			case MARKED: expected = this.minesCnt[1]; break;
+			default:     expected = this.size()-this.opened-this.minesCnt[1]; break;
+		}
 
-		tmp = new int[this.size()];
-		len = 0;
+		Collector requested = new Collector(expected);
+		this.forEachWithState(s, min, requested);
+		return requested.get();
+	}
 
-		for (int i=0; i<this.size(); i++)
+
+	/**
+	 * Visit the positions, which have currently the given state, in ascending order.
+	 * The positions are kept in sets per state, so only the requested positions are visited.
+	 * @param s       requested State.
+	 * @param min     if open, then with at least min mines in neighbourhood
+	 * @param visitor called for every requested position.
+	 * @throws NullPointerException if s or visitor is null.
+	 */
+	public void forEachWithState(State s, int min, IndexVisitor visitor) throws NullPointerException
+	{
+		if (visitor == null)
+			throw new NullPointerException("No visitor.");
+
+		switch (s)
 		{
-			if (this.state[i] == s && (!useMin || this.pos[i].minesCnt()>=min))
-			{
-				tmp[len] = i;
-				len++;
-			}
+			case OPEN:
+				if (min < 1) // all open.
+				{
+					this.cells.forEach(Cells.OPEN_SET, visitor);
+				}
+				else if (min == 1) // all numbers (and mines).
+				{
+					this.cells.forEach(Cells.NUMBER_SET, visitor);
+				}
+				else // numbers with at least min.
+				{
+					final Cells        cells = this.cells;
+					final IndexVisitor v     = visitor;
+					this.cells.forEach(Cells.NUMBER_SET, new IndexVisitor()
+					{
+						@Override
+						public void visit(int index)
+						{
+							if (Cell.value(cells.get(index)) >= min)
+								v.visit(index);
+						}
+					});
+				}
+				break;
+
+			case MARKED: this.cells.forEach(Cells.MARKED_SET, visitor); break;
+			default:     this.cells.forEach(Cells.CLOSED_SET, visitor); break;
 		}
+	}
+
+
+	/**
+	 * Get the neighbour counters and the frontier.
+	 * They are counted on the first request, and kept up to date from then on,
+	 * until the field is cleared. Forks count their own.
+	 * @return counters of this field.
+	 */
+	private Frontier frontier()
+	{
+		if (this.frontier == null) // first request.
+			this.frontier = new Frontier(this.cells, this.topology);
+
+		return this.frontier;
+	}
+
+
+	/**
+	 * Get the count of marked neighbours of the position.
+	 * The counters are kept with every move (no neighbours are counted).
+	 * The mines still needed by an open number are onPosition(index) - getMarkedAround(index).
+	 * @param index position.
+	 * @return marked neighbours (0-8).
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public int getMarkedAround(int index) throws ArrayIndexOutOfBoundsException
+	{
+		this.get(index);
+		return this.frontier().marked(index);
+	}
+
+
+	/**
+	 * Get the count of closed (neither open nor marked) neighbours of the position.
+	 * The counters are kept with every move (no neighbours are counted).
+	 * @param index position.
+	 * @return closed neighbours (0-8).
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public int getClosedAround(int index) throws ArrayIndexOutOfBoundsException
+	{
+		this.get(index);
+		return this.frontier().closed(index);
+	}
+
+
+	/**
+	 * Check if the position is in the frontier:
+	 * An open number (no mine), which still has closed neighbours.
+	 * @param index position.
+	 * @return true, if the position is in the frontier.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the field.
+	 */
+	public boolean isFrontier(int index) throws ArrayIndexOutOfBoundsException
+	{
+		this.get(index);
+		return this.frontier().contains(index);
+	}
+
+
+	/**
+	 * Get the positions of the frontier (see isFrontier).
+	 * @return positions in ascending order.
+	 */
+	public int[] getFrontier()
+	{
+		Collector frontier = new Collector(64);
+		this.forEachFrontier(frontier);
+		return frontier.get();
+	}
+
 
-		requested = new int[len];
-		System.arraycopy(tmp, 0, requested, 0, len);
+	/**
+	 * Visit the positions of the frontier (see isFrontier), in ascending order.
+	 * Only the frontier is visited, not the whole field.
+	 * The field must not be changed meanwhile.
+	 * @param visitor called for every position in the frontier.
+	 * @throws NullPointerException if visitor is null.
+	 */
+	public void forEachFrontier(IndexVisitor visitor) throws NullPointerException
+	{
+		if (visitor == null)
+			throw new NullPointerException("No visitor.");
 
-		return requested;
+		this.frontier().forEach(visitor);
 	}
 
 
@@ -834,16 +1407,33 @@ public class Field
 	 */
 	public int[] getNeighbours(int index) throws ArrayIndexOutOfBoundsException
 	{
-		Position[] ps = this.pos[index].neighbours();
-		int[]      ns = new int[ps.length];
-		for (int i=0; i<ps.length; i++)
+		this.get(index); // check boundaries.
+
+		int[] os = this.topology.offsets(index);
+		int[] ns = new int[os.length];
+		for (int i=0; i<os.length; i++)
 		{
-			ns[i] = ps[i].index;
+			ns[i] = index + os[i];
 		}
 		return ns;
 	}
 
 
+	/**
+	 * Get the position itself and its neighbours.
+	 * @param index position
+	 * @return index and i's neighbours' indices as int[].
+	 */
+	public int[] getNeighbourhood(int index) throws ArrayIndexOutOfBoundsException
+	{
+		int[] ns = this.getNeighbours(index);
+		int[] nh = Arrays.copyOf(ns, ns.length+1);
+
+		nh[ns.length] = index;
+		return nh;
+	}
+
+
 	/**
 	 * Get a copy of the positions states.
 	 * @return array with all positions' state (OPEN|MARKED|CLOSED).
@@ -851,18 +1441,32 @@ public class Field
 	protected State[] getStates()
 	{
 		State[] copy = new State[this.size()];
-		System.arraycopy(this.state, 0, copy, 0, this.size());
+		for (int i=0; i<this.size(); i++)
+		{
+			copy[i] = Cell.state(this.cells.get(i));
+		}
 		return copy;
 	}
 
 
+	/**
+	 * Get the neighbourhood for this field's size.
+	 * It is shared with all fields of the same size.
+	 * @return topology for this field's height and width.
+	 */
+	public Topology getTopology()
+	{
+		return this.topology;
+	}
+
+
 	/**
 	 * Get size as number of positions.
 	 * @return size as int.
 	 */
 	public int size()
 	{
-		return this.pos.length;
+		return this.cells.size();
 	}
 
 
@@ -953,14 +1557,14 @@ public class Field
 		String s = "Field: "+this.width+" x "+this.height;
 		for (int i=0; i<this.size(); i++)
 		{
-			s += "\nPosition: "+ this.pos[i].show();
+			s += "\nPosition: "+ this.show(i);
 		}
 		
 		s += "\n\n";
 
 		for (int i=0; i<this.size(); i++)
 		{
-			s += String.format("%3s |", this.pos[i].index);
+			s += String.format("%3s |", i);
 
 			if (i%this.height == this.height-1)
 				s += "\n";
@@ -987,9 +1591,10 @@ public class Field
 
 		for (int i=2; i<data.length; i++)
 		{
-			f.get(Integer.parseInt(data[i])).setMine(true);
+			f.setMine(Integer.parseInt(data[i]), true);
 			f.minesCnt[0] = f.minesCnt[0]+1;
 		}
+		f.save();
 		return f;
 	}
 
@@ -1001,9 +1606,9 @@ public class Field
 	public String print()
 	{
 		String s = "";
-		for (int i=0; i<pos.length; i++)
+		for (int i=0; i<this.size(); i++)
 		{
-			s += this.get(i);
+			s += this.toChar(i);
 			if (i%this.width == this.width-1)
 			{
 				s += "\n";
@@ -1023,7 +1628,7 @@ public class Field
 	public String oneLine()
 	{
 		String s = "";
-		for (Position p : pos) s += p.toChar();
+		for (int i=0; i<this.size(); i++) s += this.toChar(i);
 
 		return String.format(
 				"%d %d %d %c%c%c%c %s",
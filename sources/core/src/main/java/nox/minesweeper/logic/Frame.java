@@ -0,0 +1,154 @@
+package nox.minesweeper.logic;
+
+
+
+/**
+ * Class Frame.
+ * An immutable snapshot of a field's display state after a move.
+ * Frames are published by the field (see Field.setPublishing),
+ * any thread may read them without locks while the field keeps changing.
+ * The positions are shared with the field (copy on write), so a frame is cheap.
+ */
+public final class Frame implements Board
+{
+	public final long    version; // increased with every published frame.
+	public final int     height, width;
+	public final int     mines, marked, opened;
+	public final boolean lost, won;
+
+	private final Cells cells; // never written.
+
+
+	/**
+	 * Initiate a new frame.
+	 * @param version version of the frame.
+	 * @param field   field to take the counters from.
+	 * @param cells   forked cells of the field.
+	 */
+	Frame(long version, Field field, Cells cells)
+	{
+		this.version = version;
+		this.height  = field.getHeight();
+		this.width   = field.getWidth();
+		this.mines   = field.getMines();
+		this.marked  = field.getMarked();
+		this.opened  = field.getOpened();
+		this.lost    = field.isLost();
+		this.won     = field.isWon();
+		this.cells   = cells;
+	}
+
+
+	/**
+	 * Get the state of the position.
+	 * @param index position.
+	 * @return State (open, closed, marked)
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the frame.
+	 */
+	public Field.State getState(int index) throws ArrayIndexOutOfBoundsException
+	{
+		return Cell.state(this.get(index));
+	}
+
+
+	/**
+	 * Get the value of the position, like Field.onPosition().
+	 * @param index position.
+	 * @return count of neighbouring mines, or VALUE_MINE_ON_POS, VALUE_MARKED, VALUE_CLOSED.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the frame.
+	 */
+	public int onPosition(int index) throws ArrayIndexOutOfBoundsException
+	{
+		return Cell.value(this.get(index));
+	}
+
+
+	/**
+	 * Get the value of the position, like Field.onPosition().
+	 * @param row row of position.
+	 * @param col column of position.
+	 * @return count of neighbouring mines, or VALUE_MINE_ON_POS, VALUE_MARKED, VALUE_CLOSED.
+	 * @throws ArrayIndexOutOfBoundsException if (row,col) is not in the frame.
+	 */
+	public int onPosition(int row, int col) throws ArrayIndexOutOfBoundsException
+	{
+		if (row<0 || this.height<=row || col<0 || this.width<=col)
+			throw new ArrayIndexOutOfBoundsException("Invalid row or column");
+
+		return this.onPosition(row*this.width + col);
+	}
+
+
+	/**
+	 * Copy the display codes of a rectangle (viewport), like Field.export().
+	 * @param row  first row.
+	 * @param col  first column.
+	 * @param rows number of rows.
+	 * @param cols number of columns.
+	 * @param dst  array to fill with rows*cols codes, may be reused.
+	 * @param off  first index in dst.
+	 * @throws ArrayIndexOutOfBoundsException if the rectangle is not in the frame, or dst is too short.
+	 * @throws NullPointerException if dst is null.
+	 */
+	public void export(int row, int col, int rows, int cols, byte[] dst, int off) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		this.cells.codes(this.width, row, col, rows, cols, dst, off);
+	}
+
+
+	/**
+	 * Get the packed cell.
+	 * @param index position.
+	 * @return packed cell as byte.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not in the frame.
+	 */
+	private byte get(int index) throws ArrayIndexOutOfBoundsException
+	{
+		if (index<0 || this.size()<=index) // not in frame.
+		{
+			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
+		}
+		return this.cells.get(index);
+	}
+
+
+	/**
+	 * Get size as number of positions.
+	 * @return size as int.
+	 */
+	public int size()
+	{
+		return this.cells.size();
+	}
+
+
+	@Override
+	public int getHeight()
+	{
+		return this.height;
+	}
+
+
+	@Override
+	public int getWidth()
+	{
+		return this.width;
+	}
+
+
+	@Override
+	public Topology getTopology()
+	{
+		return Topology.of(this.height, this.width);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "Frame " + this.version + ": " + this.width + "x" + this.height
+			+ " (" + this.marked + "/" + this.mines + " mines)"
+			+ ((this.lost) ? " LOST" : "")
+			+ ((this.won)  ? " WON"  : "");
+	}
+}
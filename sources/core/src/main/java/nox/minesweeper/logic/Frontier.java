@@ -0,0 +1,190 @@
+package nox.minesweeper.logic;
+
+
+/**
+ * Class Frontier.
+ * Counters of the marked and closed neighbours of every position,
+ * and the frontier: open numbers, which still have closed neighbours.
+ *
+ * The counters are packed into one byte per position (marked in the low,
+ * closed in the high nibble) and updated with every opened, closed or
+ * toggled position, so a position's count of still needed mines and its
+ * frontier membership are looked up, not counted.
+ *
+ * The frontier is a bitset with a summary (one bit per non-empty word),
+ * so it's visited in time of its positions, not of the field.
+ */
+final class Frontier
+{
+	private final static int MARKED = 0x01; // one marked neighbour.
+	private final static int CLOSED = 0x10; // one closed neighbour.
+
+	private final Topology topology;
+	private final byte[]   around;  // marked (low) and closed (high) neighbours.
+	private final long[]   words;   // frontier positions.
+	private final long[]   summary; // non-empty words.
+
+
+	/**
+	 * Count the neighbours of all positions.
+	 * @param cells    cells of the field.
+	 * @param topology neighbourhood of the cells.
+	 */
+	Frontier(Cells cells, Topology topology)
+	{
+		int size = cells.size();
+
+		this.topology = topology;
+		this.around   = new byte[size];
+		this.words    = new long[(size + 63) >>> 6];
+		this.summary  = new long[(this.words.length + 63) >>> 6];
+
+		byte[] all = new byte[size];
+		cells.read(0, all, 0, size);
+
+		for (int i=0; i<size; i++)
+		{
+			int count = 0;
+
+			for (int o : topology.offsets(i))
+			{
+				count += delta((byte) 0, all[i+o]) + CLOSED; // from closed to its state.
+			}
+			this.around[i] = (byte) count;
+		}
+
+		for (int i=0; i<size; i++)
+		{
+			this.update(i, all[i]);
+		}
+	}
+
+
+	/**
+	 * Get the change of a neighbour's counters, if a cell changes.
+	 * @param old old cell.
+	 * @param now new cell.
+	 * @return difference of the packed counters.
+	 */
+	private static int delta(byte old, byte now)
+	{
+		int d = 0;
+
+		if (Cell.isMarked(now) != Cell.isMarked(old)) d += (Cell.isMarked(now)) ? MARKED : -MARKED;
+		if (Cell.isClosed(now) != Cell.isClosed(old)) d += (Cell.isClosed(now)) ? CLOSED : -CLOSED;
+		return d;
+	}
+
+
+	/**
+	 * Update the counters of the neighbours and the frontier for a changed cell.
+	 * @param cells cells of the field, already changed.
+	 * @param index changed position.
+	 * @param old   old cell.
+	 * @param now   new cell.
+	 */
+	void changed(Cells cells, int index, byte old, byte now)
+	{
+		int d = delta(old, now);
+
+		if (d == 0) // same state.
+			return;
+
+		for (int o : this.topology.offsets(index))
+		{
+			int n      = index+o;
+			int closed = this.around[n] & 0xF0;
+
+			this.around[n] = (byte) (this.around[n] + d);
+
+			if ((closed == 0) != ((this.around[n] & 0xF0) == 0)) // closed neighbours gone or back.
+				this.update(n, cells.get(n));
+		}
+		this.update(index, now);
+	}
+
+
+	/**
+	 * Add or remove the position from the frontier.
+	 * @param index position.
+	 * @param cell  current cell of the position.
+	 */
+	private void update(int index, byte cell)
+	{
+		boolean in   = Cell.isOpen(cell) && !Cell.isMine(cell) && 0 < Cell.count(cell) && this.closed(index) > 0;
+		int     word = index >>> 6;
+		long    bit  = 1L << index;
+
+		if (in)
+		{
+			this.words[word]          |= bit;
+			this.summary[word >>> 6]  |= 1L << word;
+		}
+		else if ((this.words[word] & bit) != 0)
+		{
+			this.words[word] &= ~bit;
+
+			if (this.words[word] == 0) // word is empty now.
+				this.summary[word >>> 6] &= ~(1L << word);
+		}
+	}
+
+
+	/**
+	 * Get the count of marked neighbours.
+	 * @param index position.
+	 * @return marked neighbours (0-8).
+	 */
+	int marked(int index)
+	{
+		return this.around[index] & 0x0F;
+	}
+
+
+	/**
+	 * Get the count of closed (neither open nor marked) neighbours.
+	 * @param index position.
+	 * @return closed neighbours (0-8).
+	 */
+	int closed(int index)
+	{
+		return (this.around[index] & 0xF0) >>> 4;
+	}
+
+
+	/**
+	 * Check if the position is in the frontier.
+	 * @param index position.
+	 * @return true, if it's an open number with closed neighbours.
+	 */
+	boolean contains(int index)
+	{
+		return (this.words[index >>> 6] & (1L << index)) != 0;
+	}
+
+
+	/**
+	 * Visit all positions of the frontier, in ascending order.
+	 * @param visitor called for every position in the frontier.
+	 */
+	void forEach(Field.IndexVisitor visitor)
+	{
+		for (int s=0; s<this.summary.length; s++)
+		{
+			long used = this.summary[s];
+
+			while (used != 0) // every non-empty word.
+			{
+				int  word = (s << 6) + Long.numberOfTrailingZeros(used);
+				long bits = this.words[word];
+
+				while (bits != 0) // every position in the word.
+				{
+					visitor.visit((word << 6) + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+				used &= used - 1;
+			}
+		}
+	}
+}
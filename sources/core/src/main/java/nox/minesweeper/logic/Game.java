@@ -1,6 +1,9 @@
 package nox.minesweeper.logic;
 
 
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
 
 /**
  * Class Game.
@@ -18,6 +21,14 @@ public class Game
 	private long       time;
 	private Statistic  stats;
 	private int        opened;
+	private Delta      lastChange; // positions changed by the last move.
+
+	private final DeltaPublisher publisher = new DeltaPublisher(); // changes for listeners.
+	private final Journal        journal   = new Journal();        // moves to undo and redo.
+
+	private long       seed;       // seed for the mines of the current board.
+	private int        firstClick; // index of the first move, -1 if not filled yet.
+	private boolean    counted;    // the board's result is in the statistics.
 
 
 	/**
@@ -101,10 +112,44 @@ public class Game
 	}
 
 
+	/**
+	 * Get the positions which were changed by the last move.
+	 * (open, toggle mark, reveal or restart)
+	 * @return changes as Delta.
+	 */
+	public Delta getLastChange()
+	{
+		return this.lastChange;
+	}
+
+
+	/**
+	 * Get the publisher for the changes of this game.
+	 * Listeners get every move's delta, without stalling the game.
+	 * @return publisher of this game.
+	 */
+	public DeltaPublisher getPublisher()
+	{
+		return this.publisher;
+	}
+
+
+	/**
+	 * Set the last change and publish it.
+	 * @param change positions changed by the current move.
+	 */
+	private void changed(Delta change)
+	{
+		this.lastChange = change;
+		this.publisher.publish(change);
+	}
+
+
 	/**
 	 * Proxy and handler for this.field.open(index).
+	 * All changes (also revealed mines) are available with getLastChange().
 	 * @param index  which should be opened.
-	 * @return ALL opened indices.
+	 * @return newly opened indices.
 	 * @throws ArrayIndexOutOfBoundsException  thrown by field.open()
 	 */
 	public int[] open(int index) throws ArrayIndexOutOfBoundsException
@@ -112,20 +157,29 @@ public class Game
 		/*Nothing to do.*/
 		if (this.field.isLost() || this.field.isWon())
 		{
+			this.lastChange = Delta.NONE;
 			return new int[0];
 		}
 
+		long time  = this.time;
+		int  count = this.count();
+
+		int[] cleared = Delta.NONE.toggled; // marks removed by the filling.
+
 		/*First Move: Fill field except just clicked index.*/
 		if (this.field.getMines()<this.mines)
 		//if (this.discovered() < 1 && this.field.getMines()<this.mines)
 		{
-			this.field.fillRandomly(this.mines, index);
+			cleared = this.fill(index);
 		}
 
 		long startTime = this.setTimeStart();
 
 		int[] indices = this.field.open(index);
 
+		this.opened    += indices.length;
+		this.changed(new Delta(indices, cleared, Delta.NONE.revealed, false));
+
 		/*Handle end of game & stores played time in time.*/
 		if (this.field.isLost() || this.field.isWon())
 		{
@@ -133,9 +187,7 @@ public class Game
 			this.handleEndGame();
 		}
 
-		indices     = this.field.getWithState(Field.State.OPEN, 0);
-		this.opened = indices.length;
-
+		this.record(time, count);
 		return indices;
 	}
 
@@ -145,11 +197,173 @@ public class Game
 	 */
 	private void handleEndGame() throws NotStartedException
 	{
-		if (this.field.isWon())
+		if (this.field.isWon() && !this.counted)
+		{
 			this.stats.addWon(this.getTime(Game.PLAYED_TIME));
+			this.counted = true;
+		}
 
 		if (this.field.isLost())
-			this.reveal();
+		{
+			Delta move = this.lastChange;
+			this.revealing();
+			this.lastChange = new Delta(move.opened, move.toggled, this.lastChange.revealed, false); // both are published.
+		}
+	}
+
+
+	/**
+	 * Proxy and handler for this.field.apply(moves).
+	 * All moves are applied at once: The first move's fill, the time
+	 * and the end of the game are handled once for the whole list.
+	 * @param moves moves to apply.
+	 * @return all changes of the moves (also revealed mines), like getLastChange().
+	 * @throws ArrayIndexOutOfBoundsException thrown by field.apply()
+	 * @throws NullPointerException if moves is null.
+	 */
+	public Delta apply(Moves moves) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		/*Nothing to do.*/
+		if (this.field.isLost() || this.field.isWon())
+		{
+			this.lastChange = Delta.NONE;
+			return this.lastChange;
+		}
+
+		long time  = this.time;
+		int  count = this.count();
+
+		int[] cleared = Delta.NONE.toggled; // marks removed by the filling.
+
+		/*First Move: Fill field except the first opened index.*/
+		for (int i=0; i<moves.size() && this.field.getMines()<this.mines; i++)
+		{
+			if (moves.kind(i) == Moves.OPEN)
+				cleared = this.fill(moves.index(i));
+		}
+
+		long startTime = this.setTimeStart();
+
+		Delta change = this.field.apply(moves);
+
+		if (0 < cleared.length) // removed marks before the moves' toggles.
+		{
+			int[] toggled = Arrays.copyOf(cleared, cleared.length + change.toggled.length);
+			System.arraycopy(change.toggled, 0, toggled, cleared.length, change.toggled.length);
+			change = new Delta(change.opened, toggled, change.revealed, false);
+		}
+
+		this.opened += change.opened.length;
+		this.changed(change);
+
+		/*Handle end of game & stores played time in time.*/
+		if (this.field.isLost() || this.field.isWon())
+		{
+			this.time = Game.now() - startTime; // played time
+			this.handleEndGame();
+		}
+
+		this.record(time, count);
+		return this.lastChange;
+	}
+
+
+	/**
+	 * Get the count of opened positions, the loss and the pause, to restore them.
+	 * @return opened positions, lost and paused, packed in an int.
+	 */
+	private int count()
+	{
+		return (this.opened << 2) | ((this.field.isLost()) ? 2 : 0) | ((this.paused) ? 1 : 0);
+	}
+
+
+	/**
+	 * Record the last change in the journal.
+	 * A restart forgets all moves, empty changes are not recorded,
+	 * unless they lost the game (e.g. a reveal with all mines marked).
+	 * @param time  time before the move.
+	 * @param count count before the move (see count()).
+	 */
+	private void record(long time, int count)
+	{
+		if (this.lastChange.restart)
+			this.journal.clear();
+
+		else if (!this.lastChange.isEmpty() || this.field.isLost() != ((count & 2) != 0))
+			this.journal.record(this.lastChange, time, count);
+	}
+
+
+	/**
+	 * Check if there is a move to undo.
+	 * @return true, if undo() will change the game.
+	 */
+	public boolean canUndo()
+	{
+		return this.journal.canUndo();
+	}
+
+
+	/**
+	 * Check if there is an undone move to redo.
+	 * @return true, if redo() will change the game.
+	 */
+	public boolean canRedo()
+	{
+		return this.journal.canRedo();
+	}
+
+
+	/**
+	 * Undo the last move (open, toggle mark, batch or reveal).
+	 * The positions and the time are restored like before the move,
+	 * the statistics keep a finished game.
+	 * @return changes (closed and toggled positions), Delta.NONE if there is nothing to undo.
+	 */
+	public Delta undo()
+	{
+		if (!this.journal.canUndo())
+			return Delta.NONE;
+
+		int   count  = this.count(); // before the field changes.
+		Delta change = this.journal.undo(this.field);
+		this.swapState(count);
+		this.changed(change);
+		return change;
+	}
+
+
+	/**
+	 * Redo the last undone move.
+	 * The positions and the time are restored like after the move.
+	 * @return changes (opened and toggled positions), Delta.NONE if there is nothing to redo.
+	 */
+	public Delta redo()
+	{
+		if (!this.journal.canRedo())
+			return Delta.NONE;
+
+		int   count  = this.count(); // before the field changes.
+		Delta change = this.journal.redo(this.field);
+		this.swapState(count);
+		this.changed(change);
+		return change;
+	}
+
+
+	/**
+	 * Swap the time, the opened positions, the loss and the pause with the journal's.
+	 * @param current count of the game before undoing or redoing (see count()).
+	 */
+	private void swapState(int current)
+	{
+		int count = this.journal.swapCount(current);
+
+		this.time   = this.journal.swapTime(this.time);
+		this.opened = count >> 2;
+		this.paused = (count & 1) != 0;
+		this.field.setLost((count & 2) != 0);
 	}
 
 
@@ -162,13 +376,87 @@ public class Game
 		/*Game is not finished yet: Try to reveal mines and restart.*/
 		if (this.isRunning())
 		{
-			this.reveal();
+			this.revealing();
 		}
 
 		this.field.fillMines(new int[0]); // fill with no mine == clear
-		this.opened = 0;
-		this.time   = -1;
-		this.paused = true;
+		this.opened     = 0;
+		this.time       = -1;
+		this.paused     = true;
+		this.changed(Delta.RESTART);
+		this.seed       = ThreadLocalRandom.current().nextLong();
+		this.firstClick = -1;
+		this.counted    = false;
+		this.journal.clear();
+	}
+
+
+	/**
+	 * Fill the field with this game's seed.
+	 * The filling clears the field: Marks of the positions are removed.
+	 * @param firstClick index which stays without mine.
+	 * @return positions which were marked before (their marks are removed).
+	 */
+	private int[] fill(int firstClick)
+	{
+		int[] marks = this.field.getWithState(Field.State.MARKED, 0);
+
+		this.firstClick = firstClick;
+		this.counted    = false;
+		this.field.fillRandomly(this.mines,
+				(firstClick<0) ? new int[0] : new int[]{firstClick},
+				new MinePlacer(this.seed));
+		return marks;
+	}
+
+
+	/**
+	 * Get the identity of the current board.
+	 * The mines of the board can be recreated with parseBoardId(id).
+	 * Format: height:width:mines:seed:first click
+	 * @return board id as String.
+	 */
+	public String getBoardId()
+	{
+		return String.format("%d:%d:%d:%s:%d"
+				,this.field.getHeight()
+				,this.field.getWidth()
+				,this.mines
+				,Long.toUnsignedString(this.seed, 36)
+				,this.firstClick);
+	}
+
+
+	/**
+	 * Create a new Game from the board id (see getBoardId()).
+	 * If the id contains a first click, the field is already filled
+	 * with the same mines like the original board.
+	 * @param id board id.
+	 * @return new Game with the identified board.
+	 * @throws NullPointerException if id is null.
+	 * @throws NumberFormatException if the id contains invalid numbers.
+	 * @throws ArrayIndexOutOfBoundsException if the id is incomplete or the dimensions are invalid.
+	 */
+	public static Game parseBoardId(String id) throws NullPointerException, NumberFormatException, ArrayIndexOutOfBoundsException
+	{
+		String[] s = id.trim().split(":");
+
+		if (s.length != 5)
+			throw new ArrayIndexOutOfBoundsException("Invalid board id: \""+id+"\"");
+
+		Game parsed = new Game(
+				Integer.parseInt(s[0]),
+				Integer.parseInt(s[1]),
+				Integer.parseInt(s[2]));
+
+		parsed.seed = Long.parseUnsignedLong(s[3], 36);
+
+		int firstClick = Integer.parseInt(s[4]);
+		if (0<=firstClick)
+		{
+			parsed.fill(firstClick);
+		}
+		return parsed;
 	}
 
 
@@ -178,10 +466,24 @@ public class Game
 	 * it's not lost.
 	 */
 	public void reveal()
+	{
+		long time  = this.time;
+		int  count = this.count();
+
+		this.revealing();
+		this.record(time, count);
+	}
+
+
+	/**
+	 * Set the Game as Lost and open all mines, without recording it.
+	 */
+	private void revealing()
 	{
 		/*Not started yet: Nothing to do.*/
 		if (this.discovered()<1)
 		{
+			this.lastChange = Delta.NONE;
 			return;
 		}
 
@@ -189,11 +491,31 @@ public class Game
 		if (this.field.getMines()<1 && 0<this.field.getMarked())
 		{
 			this.field.fillMines(new int[0]);
+			this.opened     = 0;
+			this.changed(Delta.RESTART);
 			return;
 		}
 
+		int[] closed = this.field.getMineIndices(); // mines which are still closed.
+		int   len    = 0;
+
+		for (int m : closed) // opened mines are already counted, marked mines stay marked.
+		{
+			if (this.field.getState(m) == Field.State.CLOSED)
+				closed[len++] = m;
+		}
+
 		this.field.reveal();
-		this.stats.addLost();
+
+		int[] revealed = Arrays.copyOf(closed, len); // only the changed positions.
+		this.opened   += len;
+		this.changed(Delta.ofOpened(Delta.NONE.opened, revealed));
+
+		if (!this.counted) // lost once per board, also if undone and lost again.
+		{
+			this.stats.addLost();
+			this.counted = true;
+		}
 	}
 
 
@@ -205,10 +527,21 @@ public class Game
 	 */
 	public boolean toggleMark(int index) throws ArrayIndexOutOfBoundsException
 	{
+		long time  = this.time;
+		int  count = this.count();
+
 		/*First move: Initate the game.*/
 		this.setTimeStart();
 
-		return this.field.toggleMark(index);
+		int     marked = this.field.getMarked();
+		boolean now    = this.field.toggleMark(index);
+
+		this.changed((marked != this.field.getMarked())
+			? Delta.ofToggled(index)
+			: Delta.NONE);
+
+		this.record(time, count);
+		return now;
 	}
 
 
@@ -360,6 +693,17 @@ public class Game
 	}
 
 
+	/**
+	 * Like toString(), but may also contain the board id.
+	 * @param withBoardId if true, append the board id.
+	 * @return game as String.
+	 */
+	public String toString(boolean withBoardId)
+	{
+		return this.toString() + ((withBoardId) ? " ["+this.getBoardId()+"]" : "");
+	}
+
+
 	@Override
 	public int hashCode()
 	{
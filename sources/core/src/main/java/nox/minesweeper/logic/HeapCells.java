@@ -0,0 +1,319 @@
+package nox.minesweeper.logic;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+
+/**
+ * Class HeapCells.
+ * Cells on the heap, in pages of 4096 positions.
+ * The counters are kept by the field itself.
+ *
+ * Pages are shared with forks: A page is copied before its first change
+ * (copy on write), so forking costs one page table, not the whole field.
+ *
+ * Clearing shares one empty page (and its empty bitsets) for all full pages,
+ * so a restart only replaces the page table: A stale page reads as closed,
+ * unmarked and without mines until its first change copies it.
+ *
+ * Every page keeps bitsets of its open, marked and numbered positions,
+ * which are updated with each change. So the positions with a certain
+ * state are visited without looking at the other positions.
+ *
+ * Scans compare eight cells at once (as one long, SWAR) and only look at
+ * single cells, if one of the eight matches.
+ */
+final class HeapCells extends Cells
+{
+	final static int PAGE_BITS = 12;
+	final static int PAGE      = 1 << PAGE_BITS; // positions per page.
+
+	private final static int MASK  = PAGE - 1;
+	private final static int WORDS = PAGE >>> 6; // longs per bitset and page.
+
+	private final static int OPEN_BITS   = 0;       // bitsets in the page's flags.
+	private final static int MARKED_BITS = WORDS;
+	private final static int NUMBER_BITS = 2*WORDS;
+
+	private final static long ONES  = 0x0101010101010101L; // one per byte.
+	private final static long LOW7  = 0x7F7F7F7F7F7F7F7FL;
+	private final static long HIGH  = 0x8080808080808080L;
+
+	private final static byte[] EMPTY_PAGE  = new byte[PAGE];        // shared, never written.
+	private final static long[] EMPTY_FLAGS = new long[3*WORDS];
+
+	private final byte[][] pages;
+	private final long[][] flags; // bitsets per page: open, marked, numbered.
+	private final byte[][] owned; // pages which are not shared (can be written directly), else null.
+	private final int      size;
+
+
+	/**
+	 * Initiate new cells, all closed and without mines.
+	 * @param size number of positions.
+	 */
+	HeapCells(int size)
+	{
+		this.size  = size;
+		this.pages = new byte[(size + MASK) >>> PAGE_BITS][];
+		this.flags = new long[this.pages.length][];
+		this.owned = new byte[this.pages.length][];
+
+		for (int p=0; p<this.pages.length; p++)
+		{
+			this.pages[p] = new byte[Math.min(PAGE, size - (p << PAGE_BITS))];
+			this.flags[p] = new long[3*WORDS];
+			this.owned[p] = this.pages[p];
+		}
+	}
+
+
+	/**
+	 * Initiate new cells, which share all pages with the given cells.
+	 * @param shared cells to share the pages with.
+	 */
+	private HeapCells(HeapCells shared)
+	{
+		this.size  = shared.size;
+		this.pages = shared.pages.clone();
+		this.flags = shared.flags.clone();
+		this.owned = new byte[this.pages.length][]; // nothing owned.
+	}
+
+
+	/**
+	 * Get the page to write, copy it if it is shared.
+	 * Kept small, so it's inlined into set(), the copy is rare.
+	 * @param p page number.
+	 * @return writable page.
+	 */
+	private byte[] writable(int p)
+	{
+		byte[] page = this.owned[p];
+		return (page != null) ? page : this.copy(p);
+	}
+
+
+	/**
+	 * Copy a shared page (copy on write).
+	 * @param p page number.
+	 * @return copied page, owned now.
+	 */
+	private byte[] copy(int p)
+	{
+		this.flags[p] = this.flags[p].clone();
+		return this.owned[p] = this.pages[p] = this.pages[p].clone();
+	}
+
+
+	/**
+	 * Update the bitsets of the page for a changed cell.
+	 * @param p   page number.
+	 * @param at  position in the page.
+	 * @param old old cell.
+	 * @param now new cell.
+	 */
+	private void flag(int p, int at, byte old, byte now)
+	{
+		int diff = sets(old) ^ sets(now);
+
+		if ((diff & (OPEN_SET|MARKED_SET|NUMBER_SET)) == 0) // same sets.
+			return;
+
+		long[] f    = this.flags[p];
+		int    word = at >>> 6;
+		long   bit  = 1L << at;
+
+		if ((diff & OPEN_SET)   != 0) f[OPEN_BITS   + word] ^= bit;
+		if ((diff & MARKED_SET) != 0) f[MARKED_BITS + word] ^= bit;
+		if ((diff & NUMBER_SET) != 0) f[NUMBER_BITS + word] ^= bit;
+	}
+
+
+	@Override
+	byte get(int index)
+	{
+		return this.pages[index >>> PAGE_BITS][index & MASK];
+	}
+
+
+	@Override
+	void set(int index, byte cell)
+	{
+		int    p    = index >>> PAGE_BITS;
+		int    at   = index & MASK;
+		byte[] page = this.writable(p);
+
+		this.flag(p, at, page[at], cell);
+		page[at] = cell;
+	}
+
+
+	@Override
+	void read(int index, byte[] dst, int off, int len)
+	{
+		while (len > 0) // page by page.
+		{
+			int at = index & MASK;
+			int n  = Math.min(len, PAGE - at);
+
+			System.arraycopy(this.pages[index >>> PAGE_BITS], at, dst, off, n);
+			index += n;
+			off   += n;
+			len   -= n;
+		}
+	}
+
+
+	@Override
+	void write(int index, byte[] src, int off, int len)
+	{
+		while (len > 0) // page by page.
+		{
+			int    p    = index >>> PAGE_BITS;
+			int    at   = index & MASK;
+			int    n    = Math.min(len, PAGE - at);
+			byte[] page = this.writable(p);
+
+			for (int i=0; i<n; i++)
+			{
+				this.flag(p, at+i, page[at+i], src[off+i]);
+				page[at+i] = src[off+i];
+			}
+			index += n;
+			off   += n;
+			len   -= n;
+		}
+	}
+
+
+	@Override
+	void forEach(int set, Field.IndexVisitor visitor)
+	{
+		for (int p=0; p<this.pages.length; p++)
+		{
+			long[] f    = this.flags[p];
+			int    base = p << PAGE_BITS;
+			int    len  = this.pages[p].length;
+
+			for (int w=0; w<WORDS && (w<<6) < len; w++)
+			{
+				long bits;
+
+				switch (set)
+				{
+					case OPEN_SET:   bits = f[OPEN_BITS   + w]; break;
+					case MARKED_SET: bits = f[MARKED_BITS + w]; break;
+					case NUMBER_SET: bits = f[NUMBER_BITS + w]; break;
+					default: // closed: neither open nor marked, only in the page.
+						bits = ~(f[OPEN_BITS + w] | f[MARKED_BITS + w]);
+						bits = (len - (w<<6) < 64) ? bits & ((1L << (len - (w<<6))) - 1) : bits;
+						break;
+				}
+
+				while (bits != 0) // every position in the set.
+				{
+					visitor.visit(base + (w<<6) + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+
+	@Override
+	int[] indices(byte mask, byte value, int expected)
+	{
+		long  m     = (mask  & 0x7F) * ONES; // cell bits without sign (bit 7 is never compared).
+		long  v     = (value & 0x7F) * ONES;
+		int[] found = new int[Math.max(16, expected)];
+		int   len   = 0;
+
+		for (int p=0; p<this.pages.length; p++)
+		{
+			byte[]     page  = this.pages[p];
+			ByteBuffer words = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+			int        base  = p << PAGE_BITS;
+			int        i     = 0;
+
+			for (; i+8 <= page.length; i+=8) // eight cells at once.
+			{
+				long x     = (words.getLong(i) & m) ^ v; // zero bytes match.
+				long zeros = ~(((x & LOW7) + LOW7) | x) & HIGH;
+
+				while (zeros != 0) // every matching byte.
+				{
+					if (found.length <= len) // extend.
+						found = Arrays.copyOf(found, 2*found.length);
+
+					found[len++] = base + i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+					zeros       &= zeros - 1;
+				}
+			}
+
+			for (; i<page.length; i++) // rest of the last page.
+			{
+				if ((page[i] & mask) != value)
+					continue;
+
+				if (found.length <= len) // extend.
+					found = Arrays.copyOf(found, 2*found.length);
+
+				found[len++] = base + i;
+			}
+		}
+		return Arrays.copyOf(found, len);
+	}
+
+
+	@Override
+	int size()
+	{
+		return this.size;
+	}
+
+
+	@Override
+	void fill(byte cell)
+	{
+		if (cell == 0) // share the empty page, copy on the first change.
+		{
+			for (int p=0; p<this.pages.length; p++)
+			{
+				boolean full = this.pages[p].length == PAGE;
+
+				this.pages[p] = (full) ? EMPTY_PAGE  : new byte[this.pages[p].length];
+				this.flags[p] = (full) ? EMPTY_FLAGS : new long[3*WORDS];
+				this.owned[p] = (full) ? null        : this.pages[p];
+			}
+			return;
+		}
+
+		int sets = sets(cell);
+
+		for (int p=0; p<this.pages.length; p++)
+		{
+			if (this.owned[p] == null) // don't copy, just replace.
+			{
+				this.owned[p] = this.pages[p] = new byte[this.pages[p].length];
+				this.flags[p] = new long[3*WORDS];
+			}
+			Arrays.fill(this.pages[p], cell);
+
+			long[] f = this.flags[p];
+			Arrays.fill(f, OPEN_BITS,   OPEN_BITS+WORDS,   ((sets & OPEN_SET)   != 0) ? -1L : 0L);
+			Arrays.fill(f, MARKED_BITS, MARKED_BITS+WORDS, ((sets & MARKED_SET) != 0) ? -1L : 0L);
+			Arrays.fill(f, NUMBER_BITS, NUMBER_BITS+WORDS, ((sets & NUMBER_SET) != 0) ? -1L : 0L);
+		}
+	}
+
+
+	@Override
+	Cells fork()
+	{
+		Arrays.fill(this.owned, null); // shared from now on.
+		return new HeapCells(this);
+	}
+}
@@ -0,0 +1,298 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Class Journal.
+ * The moves of a game, to undo and redo them.
+ *
+ * Every move keeps only what it changed: The opened positions as sorted
+ * ranges (start, length), the toggled positions as ~index, and the other
+ * timer state (before the move, or after it if undone).
+ * Everything is kept in primitive arrays, a single open or toggle takes
+ * about 24 bytes, so 100k moves fit into less than 3 MB.
+ * Undo and redo take time proportional to the move, not to the field.
+ */
+final class Journal
+{
+	private int[]  data   = new int[64];  // runs (start, length) and toggles (~index) of all moves.
+	private int[]  starts = new int[17];  // per move: start in data, starts[moves] is the end.
+	private long[] times  = new long[16]; // per move: the other time.
+	private int[]  counts = new int[16];  // per move: the other count of the game.
+
+	private int    moves;   // recorded moves.
+	private int    done;    // applied moves, the others can be redone.
+	private int    current; // last undone or redone move.
+
+
+	/**
+	 * Record a move, drop all moves which could be redone.
+	 * @param change changes of the move.
+	 * @param time   time of the game before the move.
+	 * @param count  count of the game before the move.
+	 */
+	void record(Delta change, long time, int count)
+	{
+		this.moves = this.done;
+
+		if (this.times.length <= this.moves) // extend.
+		{
+			this.starts = Arrays.copyOf(this.starts, 2*this.moves+1);
+			this.times  = Arrays.copyOf(this.times,  2*this.moves);
+			this.counts = Arrays.copyOf(this.counts, 2*this.moves);
+		}
+
+		/*Opened and revealed positions as sorted ranges.*/
+		int[] opened = Arrays.copyOf(change.opened, change.opened.length + change.revealed.length);
+		System.arraycopy(change.revealed, 0, opened, change.opened.length, change.revealed.length);
+		Arrays.sort(opened);
+
+		int len = this.starts[this.moves];
+
+		for (int i=0; i<opened.length; )
+		{
+			int start = opened[i];
+			int end   = start;
+
+			while (i<opened.length && opened[i] <= end) // same or next position.
+			{
+				end = Math.max(end, opened[i]+1);
+				i++;
+			}
+
+			len = this.put(len, start);
+			len = this.put(len, end - start);
+		}
+
+		for (int t : change.toggled)
+		{
+			len = this.put(len, ~t);
+		}
+
+		this.times[this.moves]    = time;
+		this.counts[this.moves]   = count;
+		this.starts[this.moves+1] = len;
+		this.moves++;
+		this.done = this.moves;
+	}
+
+
+	/**
+	 * Put a value into the data.
+	 * @param at    position in data.
+	 * @param value value to put.
+	 * @return next position in data.
+	 */
+	private int put(int at, int value)
+	{
+		if (this.data.length <= at) // extend.
+			this.data = Arrays.copyOf(this.data, 2*this.data.length);
+
+		this.data[at] = value;
+		return at+1;
+	}
+
+
+	/**
+	 * Check if there is a move to undo.
+	 * @return true, if a move can be undone.
+	 */
+	boolean canUndo()
+	{
+		return 0 < this.done;
+	}
+
+
+	/**
+	 * Check if there is an undone move to redo.
+	 * @return true, if a move can be redone.
+	 */
+	boolean canRedo()
+	{
+		return this.done < this.moves;
+	}
+
+
+	/**
+	 * Undo the last applied move on the field:
+	 * Close the opened positions and toggle the toggled again.
+	 * @param field field of the game.
+	 * @return changes, the closed and toggled positions.
+	 * @throws ArrayIndexOutOfBoundsException if there is no move to undo.
+	 */
+	Delta undo(Field field) throws ArrayIndexOutOfBoundsException
+	{
+		if (!this.canUndo())
+			throw new ArrayIndexOutOfBoundsException("Nothing to undo.");
+
+		this.current = --this.done;
+
+		int   from    = this.starts[this.current];
+		int   to      = this.starts[this.current+1];
+		int[] closed  = new int[this.opened(from, to)];
+		int[] toggled = new int[this.toggled(from, to)];
+		int   c       = 0;
+		int   t       = toggled.length;
+
+		for (int i=from; i<to; i++)
+		{
+			if (this.data[i] < 0) // toggle: undo in reversed order.
+			{
+				toggled[--t] = ~this.data[i];
+				continue;
+			}
+
+			for (int p=this.data[i]; p<this.data[i]+this.data[i+1]; p++)
+			{
+				field.close(p);
+				closed[c++] = p;
+			}
+			i++;
+		}
+
+		for (int p : toggled) // after closing (a toggle was before the opening).
+		{
+			field.flip(p);
+		}
+		field.commit();
+
+		return new Delta(Delta.NONE.opened, toggled, Delta.NONE.revealed, closed, false);
+	}
+
+
+	/**
+	 * Redo the last undone move on the field:
+	 * Toggle the toggled positions and open the opened positions again.
+	 * @param field field of the game.
+	 * @return changes, the opened and toggled positions.
+	 * @throws ArrayIndexOutOfBoundsException if there is no move to redo.
+	 */
+	Delta redo(Field field) throws ArrayIndexOutOfBoundsException
+	{
+		if (!this.canRedo())
+			throw new ArrayIndexOutOfBoundsException("Nothing to redo.");
+
+		this.current = this.done++;
+
+		int   from    = this.starts[this.current];
+		int   to      = this.starts[this.current+1];
+		int[] opened  = new int[this.opened(from, to)];
+		int[] toggled = new int[this.toggled(from, to)];
+		int   o       = 0;
+		int   t       = 0;
+
+		for (int i=from; i<to; i++) // toggles before the opening.
+		{
+			if (this.data[i] < 0)
+			{
+				toggled[t++] = ~this.data[i];
+				field.flip(~this.data[i]);
+			}
+			else i++; // skip the range.
+		}
+
+		for (int i=from; i<to; i++)
+		{
+			if (this.data[i] < 0) // toggle, already done.
+				continue;
+
+			for (int p=this.data[i]; p<this.data[i]+this.data[i+1]; p++)
+			{
+				field.reopen(p);
+				opened[o++] = p;
+			}
+			i++;
+		}
+		field.commit();
+
+		return new Delta(opened, toggled, Delta.NONE.revealed, false);
+	}
+
+
+	/**
+	 * Count the opened positions of a move.
+	 * @param from start in data.
+	 * @param to   end in data.
+	 * @return number of positions in the ranges.
+	 */
+	private int opened(int from, int to)
+	{
+		int n = 0;
+
+		for (int i=from; i<to; i++)
+		{
+			if (this.data[i] < 0) // toggle.
+				continue;
+
+			n += this.data[++i];
+		}
+		return n;
+	}
+
+
+	/**
+	 * Count the toggled positions of a move.
+	 * @param from start in data.
+	 * @param to   end in data.
+	 * @return number of toggles.
+	 */
+	private int toggled(int from, int to)
+	{
+		int n = 0;
+
+		for (int i=from; i<to; i++)
+		{
+			if (this.data[i] < 0) n++;
+			else                  i++; // skip the range.
+		}
+		return n;
+	}
+
+
+	/**
+	 * Swap the time of the last undone or redone move.
+	 * @param time current time of the game.
+	 * @return the other time (before or after the move).
+	 */
+	long swapTime(long time)
+	{
+		long other = this.times[this.current];
+		this.times[this.current] = time;
+		return other;
+	}
+
+
+	/**
+	 * Swap the count of the last undone or redone move.
+	 * @param count current count of the game.
+	 * @return the other count (before or after the move).
+	 */
+	int swapCount(int count)
+	{
+		int other = this.counts[this.current];
+		this.counts[this.current] = count;
+		return other;
+	}
+
+
+	/**
+	 * Forget all moves.
+	 */
+	void clear()
+	{
+		this.moves = 0;
+		this.done  = 0;
+	}
+
+
+	/**
+	 * Get the count of recorded moves.
+	 * @return number of moves (applied and undone).
+	 */
+	int size()
+	{
+		return this.moves;
+	}
+}
@@ -0,0 +1,234 @@
+package nox.minesweeper.logic;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * Class MappedCells.
+ * Cells in a memory-mapped file: The board lives on disk and survives restarts.
+ * Only the pages which are touched are read (or written) by the system.
+ *
+ * File layout: A header of 64 bytes (magic, version, height, width, counters),
+ * followed by one packed byte per position.
+ */
+final class MappedCells extends Cells
+{
+	final static int HEADER  = 64; // bytes before the first cell.
+
+	private final static int MAGIC   = 0x4D494E45; // "MINE"
+	private final static int VERSION = 1;
+
+	private final static int AT_MAGIC   = 0; // header offsets.
+	private final static int AT_VERSION = 4;
+	private final static int AT_HEIGHT  = 8;
+	private final static int AT_WIDTH   = 12;
+	private final static int AT_META    = 16;
+
+	private final MappedByteBuffer buffer;
+	private final int              size;
+
+
+	/**
+	 * Initiate new cells on the mapped buffer.
+	 * @param buffer mapped header and cells.
+	 */
+	private MappedCells(MappedByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		this.size   = buffer.capacity() - HEADER;
+	}
+
+
+	/**
+	 * Map the file (header and cells) into memory.
+	 * The channel is closed afterwards, the mapping stays valid.
+	 * @param file   file to map.
+	 * @param size   number of positions.
+	 * @param create if true, the file is (re)created with closed positions without mines.
+	 * @return mapped buffer.
+	 * @throws IOException if the file cannot be mapped.
+	 */
+	private static MappedByteBuffer map(File file, int size, boolean create) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			if (create) // new file (sparse): all zero.
+			{
+				raf.setLength(0);
+				raf.setLength(HEADER + (long) size);
+			}
+			else if (raf.length() != HEADER + (long) size)
+			{
+				throw new IOException("Invalid board file: "+file);
+			}
+
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) size);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+
+	/**
+	 * Create a new board file with closed positions without mines.
+	 * An existing file is overwritten.
+	 * @param file   file to create.
+	 * @param height height of the field.
+	 * @param width  width of the field.
+	 * @return new cells in the file.
+	 * @throws IOException if the file cannot be created.
+	 * @throws ArrayIndexOutOfBoundsException if the field is too big for one mapping.
+	 */
+	static MappedCells create(File file, int height, int width) throws IOException, ArrayIndexOutOfBoundsException
+	{
+		if ((long) height*width + HEADER > Integer.MAX_VALUE)
+			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+
+		MappedByteBuffer buffer = map(file, height*width, true);
+
+		buffer.putInt(AT_MAGIC,   MAGIC);
+		buffer.putInt(AT_VERSION, VERSION);
+		buffer.putInt(AT_HEIGHT,  height);
+		buffer.putInt(AT_WIDTH,   width);
+
+		return new MappedCells(buffer);
+	}
+
+
+	/**
+	 * Open an existing board file.
+	 * Only the header is read, the cells are loaded on demand.
+	 * @param file file to open.
+	 * @return cells in the file.
+	 * @throws IOException if the file cannot be read or is no board file.
+	 */
+	static MappedCells open(File file) throws IOException
+	{
+		ByteBuffer       header = ByteBuffer.allocate(HEADER);
+		RandomAccessFile raf    = new RandomAccessFile(file, "r");
+		try
+		{
+			raf.getChannel().read(header, 0);
+		}
+		finally
+		{
+			raf.close();
+		}
+
+		if (header.getInt(AT_MAGIC) != MAGIC || header.getInt(AT_VERSION) != VERSION)
+			throw new IOException("No board file: "+file);
+
+		long size = (long) header.getInt(AT_HEIGHT) * header.getInt(AT_WIDTH);
+
+		if (size < Field.MIN || size + HEADER > Integer.MAX_VALUE)
+			throw new IOException("Invalid board file: "+file);
+
+		return new MappedCells(map(file, (int) size, false));
+	}
+
+
+	/**
+	 * Get the height of the stored field.
+	 * @return height as int.
+	 */
+	int height()
+	{
+		return this.buffer.getInt(AT_HEIGHT);
+	}
+
+
+	/**
+	 * Get the width of the stored field.
+	 * @return width as int.
+	 */
+	int width()
+	{
+		return this.buffer.getInt(AT_WIDTH);
+	}
+
+
+	@Override
+	byte get(int index)
+	{
+		return this.buffer.get(HEADER + index);
+	}
+
+
+	@Override
+	void set(int index, byte cell)
+	{
+		this.buffer.put(HEADER + index, cell);
+	}
+
+
+	@Override
+	void read(int index, byte[] dst, int off, int len)
+	{
+		ByteBuffer cells = this.buffer.duplicate();
+		cells.position(HEADER + index);
+		cells.get(dst, off, len);
+	}
+
+
+	@Override
+	void write(int index, byte[] src, int off, int len)
+	{
+		ByteBuffer cells = this.buffer.duplicate();
+		cells.position(HEADER + index);
+		cells.put(src, off, len);
+	}
+
+
+	@Override
+	int size()
+	{
+		return this.size;
+	}
+
+
+	@Override
+	void fill(byte cell)
+	{
+		byte[]     chunk  = new byte[Math.min(this.size, 1<<16)];
+		ByteBuffer cells  = this.buffer.duplicate();
+
+		Arrays.fill(chunk, cell);
+		cells.position(HEADER);
+
+		while (cells.hasRemaining()) // bulk writes.
+		{
+			cells.put(chunk, 0, Math.min(chunk.length, cells.remaining()));
+		}
+	}
+
+
+	@Override
+	int meta(int slot)
+	{
+		return this.buffer.getInt(AT_META + 4*slot);
+	}
+
+
+	@Override
+	void meta(int slot, int value)
+	{
+		this.buffer.putInt(AT_META + 4*slot, value);
+	}
+
+
+	@Override
+	void flush()
+	{
+		this.buffer.force();
+	}
+}
@@ -0,0 +1,128 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+
+/**
+ * Class MinePlacer.
+ * Chooses the positions for mines with a partial Fisher-Yates shuffle
+ * over the allowed positions. The time is linear in the field size,
+ * independent of the number of mines: For dense fields the positions
+ * without mines ("holes") are chosen instead.
+ *
+ * Every placer has its own (seedable) generator, so placers on different
+ * threads don't share one generator. Subclasses may plug in another
+ * generator by overriding nextInt(int).
+ */
+public class MinePlacer
+{
+	private final SplittableRandom random;
+
+
+	/**
+	 * Initiate a new MinePlacer with a random seed.
+	 */
+	public MinePlacer()
+	{
+		this(new SplittableRandom());
+	}
+
+
+	/**
+	 * Initiate a new MinePlacer with the given seed.
+	 * Same seeds place the same mines.
+	 * @param seed seed for the generator.
+	 */
+	public MinePlacer(long seed)
+	{
+		this(new SplittableRandom(seed));
+	}
+
+
+	/**
+	 * Initiate a new MinePlacer with the given generator.
+	 * @param random generator to use.
+	 * @throws NullPointerException if random is null.
+	 */
+	public MinePlacer(SplittableRandom random) throws NullPointerException
+	{
+		if (random == null)
+			throw new NullPointerException("No generator.");
+
+		this.random = random;
+	}
+
+
+	/**
+	 * Get a random number in [0,bound[.
+	 * @param bound upper bound (exclusive), at least 1.
+	 * @return random number as int.
+	 */
+	protected int nextInt(int bound)
+	{
+		return this.random.nextInt(bound);
+	}
+
+
+	/**
+	 * Choose the positions for mines.
+	 * @param size     number of positions in the field.
+	 * @param mines    number of mines to place (nothing, if less than 1).
+	 * @param excluded positions which must not contain a mine (indices out of the field are ignored).
+	 * @return indices of the mines.
+	 * @throws ArrayIndexOutOfBoundsException if there are more mines than allowed positions.
+	 * @throws NullPointerException if excluded is null.
+	 */
+	public int[] place(int size, int mines, int[] excluded) throws ArrayIndexOutOfBoundsException, NullPointerException
+	{
+		if (mines < 1)
+			return new int[0];
+
+		int[] candidates, skip;
+		int   len, s, chosen;
+		boolean holes;
+
+		/*Collect the allowed positions.*/
+		skip = Arrays.copyOf(excluded, excluded.length);
+		Arrays.sort(skip);
+
+		candidates = new int[size];
+		len        = 0;
+		s          = 0;
+
+		for (int i=0; i<size; i++)
+		{
+			while (s<skip.length && skip[s]<i) s++;
+
+			if (s<skip.length && skip[s]==i) // excluded.
+				continue;
+
+			candidates[len] = i;
+			len++;
+		}
+
+		if (len < mines)
+		{
+			throw new ArrayIndexOutOfBoundsException("Too many mines (max."+len+")");
+		}
+
+		/*Dense field: Choose the holes, the rest are mines.*/
+		holes  = len < 2*mines;
+		chosen = (holes) ? len - mines : mines;
+
+		for (int i=0; i<chosen; i++) // partial Fisher-Yates shuffle.
+		{
+			int j = i + this.nextInt(len - i);
+			int t = candidates[i];
+
+			candidates[i] = candidates[j];
+			candidates[j] = t;
+		}
+
+		return (holes)
+			? Arrays.copyOfRange(candidates, chosen, len)
+			: Arrays.copyOf(candidates, chosen);
+	}
+}
@@ -0,0 +1,150 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Class Moves.
+ * A list of moves (open, mark, chord) to apply at once (see Field.apply and Game.apply).
+ * The moves are kept in primitive arrays, so a list can be cleared and reused
+ * without allocations, e.g. by a solver or bot.
+ */
+public final class Moves
+{
+	public final static byte OPEN   = 0; // open the position.
+	public final static byte TOGGLE = 1; // toggle the mark of the position.
+	public final static byte MARK   = 2; // mark the position, if it's not marked yet.
+	public final static byte CHORD  = 3; // open all unmarked neighbours of a satisfied number.
+
+	private byte[] kinds   = new byte[8];
+	private int[]  indices = new int[8];
+	private int    length  = 0;
+
+
+	/**
+	 * Add a move.
+	 * @param kind  OPEN, TOGGLE, MARK or CHORD.
+	 * @param index position of the move.
+	 * @return this, to add more moves.
+	 * @throws ArrayIndexOutOfBoundsException if the kind is unknown.
+	 */
+	public Moves add(byte kind, int index) throws ArrayIndexOutOfBoundsException
+	{
+		if (kind < OPEN || CHORD < kind)
+			throw new ArrayIndexOutOfBoundsException("No such move: "+kind);
+
+		if (this.indices.length <= this.length) // extend.
+		{
+			this.kinds   = Arrays.copyOf(this.kinds,   2*this.length);
+			this.indices = Arrays.copyOf(this.indices, 2*this.length);
+		}
+
+		this.kinds[this.length]   = kind;
+		this.indices[this.length] = index;
+		this.length++;
+		return this;
+	}
+
+
+	/**
+	 * Add a move to open a position.
+	 * @param index position to open.
+	 * @return this, to add more moves.
+	 */
+	public Moves open(int index)
+	{
+		return this.add(OPEN, index);
+	}
+
+
+	/**
+	 * Add a move to toggle the mark of a position.
+	 * @param index position to toggle.
+	 * @return this, to add more moves.
+	 */
+	public Moves toggle(int index)
+	{
+		return this.add(TOGGLE, index);
+	}
+
+
+	/**
+	 * Add a move to mark a position (marked positions stay marked).
+	 * @param index position to mark.
+	 * @return this, to add more moves.
+	 */
+	public Moves mark(int index)
+	{
+		return this.add(MARK, index);
+	}
+
+
+	/**
+	 * Add a move to chord on a position:
+	 * If the position is an open number with as many marked neighbours,
+	 * all other closed neighbours are opened.
+	 * @param index position to chord on.
+	 * @return this, to add more moves.
+	 */
+	public Moves chord(int index)
+	{
+		return this.add(CHORD, index);
+	}
+
+
+	/**
+	 * Get the kind of a move.
+	 * @param i number of the move.
+	 * @return OPEN, TOGGLE, MARK or CHORD.
+	 * @throws ArrayIndexOutOfBoundsException if there is no such move.
+	 */
+	public byte kind(int i) throws ArrayIndexOutOfBoundsException
+	{
+		if (i<0 || this.length<=i) // not in list.
+			throw new ArrayIndexOutOfBoundsException("No such move: "+i);
+
+		return this.kinds[i];
+	}
+
+
+	/**
+	 * Get the position of a move.
+	 * @param i number of the move.
+	 * @return index of the position.
+	 * @throws ArrayIndexOutOfBoundsException if there is no such move.
+	 */
+	public int index(int i) throws ArrayIndexOutOfBoundsException
+	{
+		if (i<0 || this.length<=i) // not in list.
+			throw new ArrayIndexOutOfBoundsException("No such move: "+i);
+
+		return this.indices[i];
+	}
+
+
+	/**
+	 * Get the count of moves.
+	 * @return number of moves.
+	 */
+	public int size()
+	{
+		return this.length;
+	}
+
+
+	/**
+	 * Remove all moves, keep the arrays for reuse.
+	 */
+	public void clear()
+	{
+		this.length = 0;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "Moves: " + this.length;
+	}
+}
@@ -0,0 +1,142 @@
+package nox.minesweeper.logic;
+
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Class ParallelFill.
+ * Expands a big zero region level by level (breadth first) on a ForkJoinPool.
+ *
+ * Every level's frontier is split into chunks, each chunk collects the
+ * closed neighbours of its zero positions. A position is claimed by exactly
+ * one chunk (atomic visited bits), the cells are only read meanwhile:
+ * The caller opens the claimed positions afterwards on its own thread.
+ */
+final class ParallelFill extends RecursiveTask<int[]>
+{
+	private final static long serialVersionUID = 1L;
+	private final static int  CHUNK            = 2048; // frontier positions per task.
+
+	private final Cells           cells;
+	private final Topology        topology;
+	private final AtomicLongArray visited; // claimed positions (bits).
+	private final int[]           frontier;
+	private final int             from, to;
+
+
+	/**
+	 * Initiate a new task for a part of the frontier.
+	 * @param cells    cells to read.
+	 * @param topology neighbourhood of the cells.
+	 * @param visited  claimed positions.
+	 * @param frontier positions to expand.
+	 * @param from     first frontier position of this task.
+	 * @param to       end (exclusive).
+	 */
+	private ParallelFill(Cells cells, Topology topology, AtomicLongArray visited, int[] frontier, int from, int to)
+	{
+		this.cells    = cells;
+		this.topology = topology;
+		this.visited  = visited;
+		this.frontier = frontier;
+		this.from     = from;
+		this.to       = to;
+	}
+
+
+	/**
+	 * Get all closed positions, which are connected to the frontier by zeros.
+	 * The frontier positions must be open already.
+	 * @param cells    cells to read (not changed).
+	 * @param topology neighbourhood of the cells.
+	 * @param frontier open positions, whose neighbours are not expanded yet.
+	 * @param pool     pool to run the tasks.
+	 * @return positions to open (in breadth first levels).
+	 */
+	static int[] expand(Cells cells, Topology topology, int[] frontier, ForkJoinPool pool)
+	{
+		AtomicLongArray visited = new AtomicLongArray((cells.size() + 63) >>> 6);
+		int[]           all     = new int[Math.max(16, frontier.length)];
+		int             len     = 0;
+
+		while (frontier.length > 0) // one level.
+		{
+			frontier = pool.invoke(new ParallelFill(cells, topology, visited, frontier, 0, frontier.length));
+
+			if (all.length < len + frontier.length) // extend.
+			{
+				all = Arrays.copyOf(all, Math.max(2*all.length, len + frontier.length));
+			}
+			System.arraycopy(frontier, 0, all, len, frontier.length);
+			len += frontier.length;
+		}
+		return Arrays.copyOf(all, len);
+	}
+
+
+	/**
+	 * Claim the position for this task.
+	 * @param index position.
+	 * @return true, if no other task has claimed it before.
+	 */
+	private boolean claim(int index)
+	{
+		int  i   = index >>> 6;
+		long bit = 1L << index; // shift uses the lowest 6 bits.
+
+		while (true)
+		{
+			long word = this.visited.get(i);
+
+			if ((word & bit) != 0) // already claimed.
+				return false;
+
+			if (this.visited.compareAndSet(i, word, word | bit))
+				return true;
+		}
+	}
+
+
+	@Override
+	protected int[] compute()
+	{
+		if (CHUNK < this.to - this.from) // split.
+		{
+			int          mid   = (this.from + this.to) >>> 1;
+			ParallelFill left  = new ParallelFill(cells, topology, visited, frontier, this.from, mid);
+			ParallelFill right = new ParallelFill(cells, topology, visited, frontier, mid, this.to);
+
+			left.fork();
+			int[] r = right.compute();
+			int[] l = left.join();
+
+			int[] both = Arrays.copyOf(l, l.length + r.length);
+			System.arraycopy(r, 0, both, l.length, r.length);
+			return both;
+		}
+
+		int[] next = new int[8*(this.to - this.from)];
+		int   len  = 0;
+
+		for (int f=this.from; f<this.to; f++)
+		{
+			int n = this.frontier[f];
+
+			if (0 < Cell.count(this.cells.get(n))) // don't open neighbours.
+				continue;
+
+			for (int o : this.topology.offsets(n))
+			{
+				if (!Cell.isClosed(this.cells.get(n+o)) || !this.claim(n+o)) // marked, open or claimed.
+					continue;
+
+				next[len++] = n+o;
+			}
+		}
+		return Arrays.copyOf(next, len);
+	}
+}
@@ -1,156 +1,148 @@
 package nox.minesweeper.logic;
 
-class ParsedField extends Field
+
+/**
+ * Class ParsedField.
+ * A read-only board over a field's line (see Field.oneLine()):
+ * "width height mines displays positions".
+ * The positions are read from the line itself, nothing is copied.
+ */
+final class ParsedField implements Board
 {
-	private static String sepeator = " ";
+	private final String   line;   // the parsed line.
+	private final int      offset; // start of the positions in the line.
+	private final int      height, width;
+	private final Topology topology;
 
-	private final static int VALUE_CLOSED = Integer.MIN_VALUE;
+	private final char     zero, closed, mine, marked; // displays of the line.
 
-	private int[]   valueParsed;
-	private State[] stateParsed;
-	private boolean lostParsed;
 
-	private ParsedField(int height, int width)
+	/**
+	 * Initiate a new ParsedField.
+	 * @param line     parsed line.
+	 * @param offset   start of the positions in the line.
+	 * @param height   height of the field.
+	 * @param width    width of the field.
+	 * @param displays displays for zero, closed, mine and marked.
+	 */
+	private ParsedField(String line, int offset, int height, int width, String displays)
 	{
-		super(height,width);
-		this.valueParsed = new int[this.size()];
-		this.stateParsed      = new State[this.size()];
-		this.lostParsed       = false;
+		this.line     = line;
+		this.offset   = offset;
+		this.height   = height;
+		this.width    = width;
+		this.topology = Topology.of(height, width);
+
+		this.zero     = displays.charAt(Field.DISPLAY_ZERO);
+		this.closed   = displays.charAt(Field.DISPLAY_CLOSED);
+		this.mine     = displays.charAt(Field.DISPLAY_MINE);
+		this.marked   = displays.charAt(Field.DISPLAY_MARKED);
 	}
 
 
 	/**
 	 * Parse a new Field from given String.
-	 * @param str string with information.
-	 * @return a new Field from the given information.
-	 * @throws NullPointerException 
-	 * @throws ArrayIndexOutOfBoundsException 
+	 * @param str string with information (see Field.oneLine()).
+	 * @return a new board over the given string.
+	 * @throws NullPointerException if the string is null.
+	 * @throws ArrayIndexOutOfBoundsException if the data is incomplete or doesn't fit the size.
+	 * @throws NumberFormatException if the dimensions are invalid numbers.
 	 */
 	public static ParsedField parseField(String str) throws NullPointerException, ArrayIndexOutOfBoundsException, NumberFormatException
 	{
-		String[] s = str.split(sepeator);
+		int[] numbers = new int[3]; // width, height, mines.
+		int   at      = 0;
 
-		int  width, height, mines, size;
-		char zero, closed, mine, marked;
-		ParsedField field;
+		for (int n=0; n<numbers.length; n++)
+		{
+			int end = str.indexOf(' ', at);
 
-		width  = Integer.parseInt(s[0]);
-		height = Integer.parseInt(s[1]);
-		mines  = Integer.parseInt(s[2]);
+			if (end < 0)
+				throw new ArrayIndexOutOfBoundsException("Not enough data.");
 
-		field = new ParsedField(width, height);
-		field.parseState(s[4]);
+			numbers[n] = Integer.parseInt(str.substring(at, end));
+			at         = end+1;
+		}
 
-		return field;
+		/*Displays (may contain spaces), one space, then the positions.*/
+		if (str.length() - (at+5) != numbers[0]*numbers[1])
+			throw new ArrayIndexOutOfBoundsException("Given indices and contained indeces are not equal.");
+
+		return new ParsedField(str, at+5, numbers[1], numbers[0], str.substring(at, at+4));
 	}
 
 
 	/**
-	 * Parse the current state from the string for this field.
-	 * @param str 
-	 * @throws NullPointerException 
-	 * @throws ArrayIndexOutOfBoundsException 
+	 * Get the displayed char of the position.
+	 * @param index position.
+	 * @return char of the line.
+	 * @throws ArrayIndexOutOfBoundsException if the index is not on the board.
 	 */
-	public void parseState(String str) throws NullPointerException, ArrayIndexOutOfBoundsException
+	private char charAt(int index) throws ArrayIndexOutOfBoundsException
 	{
-		if (str.length()!=this.size())
+		if (index<0 || this.size()<=index) // not on board.
 		{
-			throw new ArrayIndexOutOfBoundsException("Given indices and contained indeces are not equal.");
+			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
 		}
+		return this.line.charAt(this.offset + index);
+	}
 
-		for (int i=0; i<this.size(); i++)
-		{
-			this.setPosition(i, str.charAt(i));
-		}
+
+	@Override
+	public Field.State getState(int index) throws ArrayIndexOutOfBoundsException
+	{
+		char c = this.charAt(index);
+
+		if (c == this.marked) return Field.State.MARKED;
+		if (c == this.closed) return Field.State.CLOSED;
+		return Field.State.OPEN;
 	}
 
 
-	/**
-	 * Fill position information with data.
-	 * @param index Index
-	 * @param data may contain: Open|Closed|Marked 
-	 * @throws ArrayIndexOutOfBoundsException if index is out ouf boundaries.
-	 */
-	protected void setPosition(int index, char data) throws ArrayIndexOutOfBoundsException
+	@Override
+	public int onPosition(int index) throws ArrayIndexOutOfBoundsException
 	{
-		//TODO (A) 2017-10-09  @implement
-		int value = -1;
-		State state = Field.State.CLOSED;
+		char c = this.charAt(index);
 
-		if (data == Field.getDisplay(Field.DISPLAY_MARKED))
-		{
-			value = Field.VALUE_MARKED;
-			state = State.MARKED;
-		}
-		else if (data == Field.getDisplay(Field.DISPLAY_CLOSED))
-		{
-			value = VALUE_CLOSED;
-		}
-		else if (data==Field.getDisplay(DISPLAY_MINE))
-		{
-			this.lostParsed = true;
-			this.valueParsed[index] = Integer.MAX_VALUE;
-			state = State.OPEN;
-		}
-		else if (data==Field.getDisplay(DISPLAY_ZERO))
-		{
-			value = 0;
-			state = State.OPEN;
-		}
-		else // parse mines count.
-		{
-			value = (int) data - 49;
-			state = State.OPEN;
-		}
-		this.valueParsed[index] = value;
-		this.stateParsed[index]      = state;
+		if (c == this.marked) return Field.VALUE_MARKED;
+		if (c == this.closed) return Field.VALUE_CLOSED;
+		if (c == this.mine)   return Field.VALUE_MINE_ON_POS;
+		if (c == this.zero)   return 0;
+		return c - '0';
 	}
 
 
 	@Override
-	public State getState(int index) throws ArrayIndexOutOfBoundsException
+	public int getHeight()
 	{
-		return this.stateParsed[index];
+		return this.height;
 	}
 
 
 	@Override
-	public int onPosition(int index) throws ArrayIndexOutOfBoundsException
+	public int getWidth()
 	{
-		return this.valueParsed[index];
+		return this.width;
 	}
 
 
 	@Override
-	public boolean isLost()
+	public int size()
 	{
-		return this.lostParsed;
+		return this.height*this.width;
 	}
 
 
 	@Override
-	public int[] open(int index) throws ArrayIndexOutOfBoundsException
+	public Topology getTopology()
 	{
-		System.out.println("REQUEST: Open on '"+index+"'.");
-		//return super.open(index);
-		return new int[0];
+		return this.topology;
 	}
 
 
 	@Override
-	public boolean toggleMark(int index) throws ArrayIndexOutOfBoundsException
+	public String toString()
 	{
-		if (this.stateParsed[index] == State.CLOSED)
-		{
-			this.stateParsed[index] = State.MARKED;
-			this.valueParsed[index] = Field.VALUE_MARKED;
-			return true;
-		}
-		else if (this.stateParsed[index] == State.MARKED)
-		{
-			this.stateParsed[index] = State.CLOSED;
-			this.valueParsed[index] = Field.VALUE_CLOSED;
-		}
-		return false;
+		return "ParsedField " + this.width + "x" + this.height;
 	}
 }
@@ -87,7 +87,7 @@ public class PlayGround
 		for (;still<5 && n<lim && !(field.isWon()||field.isLost()); n++)
 		{
 			//indices = Solver.INSTANCE.possibleUnsatisfied(field);
-			indices = field.getWithState(Field.State.OPEN,1);
+			indices = field.getFrontier();
 			closed  = field.getWithState(Field.State.CLOSED,0);
 
 			System.out.println("\n==========================================================================================================");
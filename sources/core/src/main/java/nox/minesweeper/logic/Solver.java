@@ -20,21 +20,14 @@ public enum Solver
 	/**
 	 * Class Todo.
 	 * List of indeces and what to do with them.
-	 * Indices are for a certain Field.
+	 * Indices are for a certain board.
 	 */
 	private class Todo
 	{
-		public  final  Field  field;
-
 		private int[]         indices = new int[8];
 		private Field.State[] nxtStep = new Field.State[8];
 		private int           length  = 0;
 
-		public Todo(Field field)
-		{
-			this.field = field;
-		}
-
 		public void set(int[] all, Field.State s )
 		{
 			for (int index: all)
@@ -108,7 +101,7 @@ public enum Solver
 	 */
 	private static class PositionInfo
 	{
-		public final Field         field;
+		public final Board         field;
 		public final int           position;
 		public final Field.State   state;
 
@@ -118,7 +111,7 @@ public enum Solver
 		public final int[] marked;
 		public final int[] closed;
 
-		private PositionInfo(Field field, int p, int n, int[] os, int[] ms, int[] cs)
+		private PositionInfo(Board field, int p, int n, int[] os, int[] ms, int[] cs)
 		{
 			this.field       = field;
 			this.position    = p;
@@ -140,16 +133,18 @@ public enum Solver
 		 * @throws ArrayIndexOutOfBoundsException 
 		 * @throws NullPointerException 
 		 */
-		public static PositionInfo about(Field f, int pos) throws ArrayIndexOutOfBoundsException,NullPointerException
+		public static PositionInfo about(Board f, int pos) throws ArrayIndexOutOfBoundsException,NullPointerException
 		{
 			int[]       ns, cs, os, ms, tmp;  // neighbours, decided, closed
+			int[]       offsets;
 			int         csLen, osLen, msLen;
 			int         needed, marked;
 			Field.State nState;
 
-			needed = f.onPosition(pos);
+			needed  = f.onPosition(pos);
+			offsets = f.getTopology().offsets(pos);
 
-			ns = f.getNeighbours(pos);
+			ns = offsets;
 			cs = new int[ns.length];
 			os = new int[ns.length];
 			ms = new int[ns.length];
@@ -159,8 +154,9 @@ public enum Solver
 			msLen  = 0;
 
 			/*Count marked, search for closed neighbours.*/
-			for (int n : ns)
+			for (int o : offsets)
 			{
+				int n = pos + o;
 				switch (f.getState(n))
 				{
 					case MARKED:
@@ -338,10 +334,10 @@ public enum Solver
 	/**
 	 * Try to parse a Solver readable Field.
 	 * This is to try to make the Solver also useable outside this package.
-	 * @param string with Field information.
-	 * @return a nox.minesweeper.Field
+	 * @param string with Field information (see Field.oneLine()).
+	 * @return a read-only board over the string.
 	 */
-	private Field parseFieldInfo(String string) throws NullPointerException,NullPointerException,ArrayIndexOutOfBoundsException
+	public Board parseFieldInfo(String string) throws NullPointerException,NullPointerException,ArrayIndexOutOfBoundsException
 	{
 		//return null; // TODO (A) 2017-09-27  @implement parsing field +string.
 		return ParsedField.parseField(string);
@@ -389,30 +385,34 @@ public enum Solver
 	 * It will return positions, whuch are open,
 	 * but their neighbours (marked|open) still doesn't fit
 	 * the requested mine number.
-	 * @param field Field which cells will be partially sorted.
+	 * @param field board to look at.
 	 * @return positions indices as int array.
 	 */
-	public int[] possibleUnsatisfied(Field field)
+	public int[] possibleUnsatisfied(Board field)
 	{
 		if (field==null)
 			return new int[0];
 
-		int[] open, unsatisfied, ns;
+		if (field instanceof Field && !((Field) field).isLost()) // kept counters.
+			return this.unsatisfiedFrontier((Field) field);
+
+		int[] open, unsatisfied;
 		int   mines = 1;
 		int   marks = 0;
 		int   len   = 0;
-		open        = field.getWithState(OPEN, 1);
-		unsatisfied = new int[open.length];
+		unsatisfied = new int[field.size()];
 
-		for (int o: open)
+		for (int o=0; o<field.size(); o++)
 		{
+			if (field.getState(o) != OPEN || field.onPosition(o) < 1) // no open number.
+				continue;
+
 			marks = 0;
 			mines = field.onPosition(o);
-			ns    = field.getNeighbours(o);
 
-			for (int n : ns)
+			for (int n : field.getTopology().offsets(o))
 			{
-				marks += (field.getState(n) == MARKED) ? 1 : 0;
+				marks += (field.getState(o+n) == MARKED) ? 1 : 0;
 			}
 
 			if (mines <= marks) // as satisfied marked.
@@ -427,6 +427,33 @@ public enum Solver
 		return open;
 	}
 
+	/**
+	 * Get the unsatisfied open positions from the field's kept counters.
+	 * Without an opened mine, every unsatisfied position still has closed
+	 * neighbours: Only the frontier is looked at, not the whole field.
+	 * @param field field to look at, not lost.
+	 * @return positions indices as int array.
+	 */
+	private int[] unsatisfiedFrontier(Field field)
+	{
+		int[] frontier = field.getFrontier();
+		int   len      = 0;
+
+		for (int o : frontier)
+		{
+			if (field.onPosition(o) <= field.getMarkedAround(o)) // as satisfied marked.
+				continue;
+
+			frontier[len] = o;
+			len++;
+		}
+
+		int[] open = new int[len];
+		System.arraycopy(frontier, 0, open, 0, len);
+		return open;
+	}
+
+
 	/**
 	 * Check if the Position is statisfied (all mines are marked).
 	 * Proxy for checkPosition(field,index,false).
@@ -453,22 +480,52 @@ public enum Solver
 		if (field.isWon() || field.isLost())
 			return;
 
-		/*Invalid index.*/
-		if (field.getState(index) != OPEN)
+		if (!field.isFrontier(index)) // nothing left to open or mark.
 			return;
 
-		PositionInfo pos   = PositionInfo.about(field, index);
-		Todo         todo  = new Todo(field);
-		Field.State  state = CLOSED;
+		field.apply(this.nextMoves(field, index, withTry));
+	}
 
-		todo = this.recognizePattern(pos);
 
-		//todo.set(pos.closed, state);
+	/**
+	 * Get the moves to satisfy the position, the board is only read.
+	 * @param board board which contains cells.
+	 * @param index index in board.
+	 * @param withTry will also check with combinatoric moves.
+	 * @return moves (open and mark), empty if the position is not open.
+	 * @throws NullPointerException if the board is null.
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in board.
+	 */
+	public Moves nextMoves(Board board, int index, boolean withTry) throws NullPointerException, ArrayIndexOutOfBoundsException
+	{
+		/*Invalid index.*/
+		if (board.getState(index) != OPEN)
+			return new Moves();
+
+		PositionInfo pos  = PositionInfo.about(board, index);
+		Todo         todo = this.recognizePattern(pos);
 
-		if (state == CLOSED && withTry)
+		if (withTry)
 			this.checkWithCombinatorics(pos, todo);
 
-		this.nextStep(todo);
+		return this.nextStep(todo);
+	}
+
+
+	/**
+	 * Check the position on a fork of the field, the field itself is not changed.
+	 * @param field Field which contains cells.
+	 * @param index index in field.
+	 * @param withTry will also check with combinatoric moves.
+	 * @return forked field with the solver's moves.
+	 * @throws NullPointerException if the field is null.
+	 * @throws ArrayIndexOutOfBoundsException if the position is not in field.
+	 */
+	public Field preview(Field field, int index, boolean withTry) throws NullPointerException, ArrayIndexOutOfBoundsException
+	{
+		Field fork = field.fork();
+		this.checkPosition(fork, index, withTry);
+		return fork;
 	}
 
 
@@ -511,7 +568,6 @@ public enum Solver
 		{
 			System.out.println("Sorry! :(");
 			todo.set(pos.closed, CLOSED);
-			this.nextStep(todo);
 			return;
 		}
 
@@ -685,7 +741,7 @@ public enum Solver
 	 */
 	private Todo recognizePattern(PositionInfo pos) throws NullPointerException
 	{
-		Todo todo = new Todo(pos.field);
+		Todo todo = new Todo();
 
 		int[] open   = pos.open;
 		int[] closed = pos.closed;
@@ -807,26 +863,27 @@ public enum Solver
 
 
 	/**
-	 * Follow the instructions of the todo in the given field.
-	 * @param field
+	 * Translate the instructions of the todo into one batch of moves.
 	 * @param todo
+	 * @return moves to apply.
 	 */
-	private void nextStep(Todo todo)
+	private Moves nextStep(Todo todo)
 	{
 		if (todo==null)
-			return;
+			return new Moves();
 
-		Field f = todo.field;
+		Moves moves = new Moves();
 
 		for (int i=0; i<todo.length(); i++)
 		{
 			switch(todo.nxtStep[i])
 			{
 				case CLOSED: break; // nothing to do.
-				case MARKED: f.toggleMark(todo.indices[i]); break;
-				case OPEN:   f.open(todo.indices[i]);       break;
+				case MARKED: moves.mark(todo.indices[i]); break;
+				case OPEN:   moves.open(todo.indices[i]); break;
 			}
 		}
+		return moves;
 	}
 
 
@@ -0,0 +1,187 @@
+package nox.minesweeper.logic;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Class Topology.
+ * Neighbourhood of the positions for a certain height and width.
+ * It is built once per dimension and shared by all fields (and games) of that size.
+ *
+ * Neighbours are given as offsets to the position's index:
+ * Interior positions share one table with all eight offsets,
+ * edges and corners have their own (shorter) tables.
+ */
+public final class Topology
+{
+	private final static ConcurrentHashMap<Long,Topology> CACHE
+		= new ConcurrentHashMap<Long,Topology>(); // by height and width
+
+	private final static int TOP    = 1;
+	private final static int BOTTOM = 2;
+	private final static int LEFT   = 4;
+	private final static int RIGHT  = 8;
+
+	public final int height, width;
+
+	private final int[][] offsets; // by kind: TOP|BOTTOM|LEFT|RIGHT
+	private final int     size;
+
+
+	/**
+	 * Initiate the neighbourhood tables.
+	 * @param height height of the field.
+	 * @param width  width of the field.
+	 */
+	private Topology(int height, int width)
+	{
+		this.height  = height;
+		this.width   = width;
+		this.size    = height*width;
+		this.offsets = new int[16][];
+
+		int[] rows = {-1,-1,-1, 0, 0, 1, 1, 1};
+		int[] cols = {-1, 0, 1,-1, 1,-1, 0, 1};
+
+		for (int kind=0; kind<this.offsets.length; kind++)
+		{
+			int[] tmp = new int[8];
+			int   len = 0;
+
+			for (int n=0; n<rows.length; n++)
+			{
+				/*This is on edge: No neighbours above|below.*/
+				if ((kind&TOP)!=0 && rows[n]<0 || (kind&BOTTOM)!=0 && rows[n]>0)
+					continue;
+
+				/*This is on edge: No neighbours left|right.*/
+				if ((kind&LEFT)!=0 && cols[n]<0 || (kind&RIGHT)!=0 && cols[n]>0)
+					continue;
+
+				tmp[len] = rows[n]*width + cols[n];
+				len++;
+			}
+
+			this.offsets[kind] = new int[len];
+			System.arraycopy(tmp, 0, this.offsets[kind], 0, len);
+		}
+	}
+
+
+	/**
+	 * Get the (shared) topology for the given dimensions.
+	 * @param height height of the field.
+	 * @param width  width of the field.
+	 * @return topology for height x width.
+	 * @throws ArrayIndexOutOfBoundsException if the dimensions are invalid.
+	 */
+	public static Topology of(int height, int width) throws ArrayIndexOutOfBoundsException
+	{
+		if (height<Field.MIN || width<Field.MIN)
+			throw new ArrayIndexOutOfBoundsException("Invalid size.");
+
+		Long     key = ((long) height << 32) | width;
+		Topology t   = CACHE.get(key);
+
+		if (t == null) // first field with this size.
+		{
+			t = new Topology(height, width);
+			Topology known = CACHE.putIfAbsent(key, t);
+			t = (known!=null) ? known : t;
+		}
+		return t;
+	}
+
+
+	/**
+	 * Get the kind (edge, corner or interior) of the position.
+	 * @param index position.
+	 * @return TOP|BOTTOM|LEFT|RIGHT, 0 for interior.
+	 */
+	private int kind(int index)
+	{
+		int row = index / this.width;
+		int col = index - row*this.width;
+
+		return (row==0            ? TOP    : 0)
+			|  (row==this.height-1 ? BOTTOM : 0)
+			|  (col==0            ? LEFT   : 0)
+			|  (col==this.width-1  ? RIGHT  : 0);
+	}
+
+
+	/**
+	 * Get the offsets to the neighbours of the given position.
+	 * The returned table is shared: Do not modify.
+	 * @param index position.
+	 * @return offsets, add them to the index to get the neighbours.
+	 */
+	public int[] offsets(int index)
+	{
+		return this.offsets[this.kind(index)];
+	}
+
+
+	/**
+	 * Get the offsets for a position which is neither on an edge nor in a corner.
+	 * The returned table is shared: Do not modify.
+	 * @return all eight offsets.
+	 */
+	public int[] interior()
+	{
+		return this.offsets[0];
+	}
+
+
+	/**
+	 * Check if the position has all eight neighbours.
+	 * @param index position.
+	 * @return true, if not on edge.
+	 */
+	public boolean isInterior(int index)
+	{
+		return this.kind(index) == 0;
+	}
+
+
+	/**
+	 * Get the count of neighbours for the given position.
+	 * @param index position.
+	 * @return number of neighbours (3, 5 or 8 on usual fields).
+	 */
+	public int count(int index)
+	{
+		return this.offsets[this.kind(index)].length;
+	}
+
+
+	/**
+	 * Write the neighbours' indices of the given position into buffer.
+	 * @param index  position.
+	 * @param buffer array with at least 8 entries to fill.
+	 * @return number of neighbours written into buffer.
+	 * @throws ArrayIndexOutOfBoundsException if index is not in the field.
+	 */
+	public int neighbours(int index, int[] buffer) throws ArrayIndexOutOfBoundsException
+	{
+		if (index<0 || this.size<=index) // not in field.
+		{
+			throw new ArrayIndexOutOfBoundsException("No such index: "+index);
+		}
+
+		int[] os = this.offsets[this.kind(index)];
+		for (int i=0; i<os.length; i++)
+		{
+			buffer[i] = index + os[i];
+		}
+		return os.length;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "Topology " + this.width + "x" + this.height;
+	}
+}
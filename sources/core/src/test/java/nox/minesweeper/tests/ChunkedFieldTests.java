@@ -0,0 +1,136 @@
+package nox.minesweeper.tests;
+
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import nox.minesweeper.logic.*;
+
+
+/**
+ * Class ChunkedFieldTests.
+ * Run unit test to proove the chunked field for big boards.
+ */
+public class ChunkedFieldTests
+{
+	private String msg;
+
+
+	@Test
+	public void testEmptyField()
+	{
+		ChunkedField field = new ChunkedField(100, 130, 0, 1);
+
+		msg = "Open empty field: Everything opened, over all tiles";
+		assertEquals(msg, 100*130, field.open(99, 129));
+		assertEquals(msg, true, field.isWon());
+		assertEquals(msg, 2*3, field.getTiles());
+		assertEquals(msg, 0, field.onPosition(0, 0));
+	}
+
+
+	@Test
+	public void testCountsOverTileBorders()
+	{
+		int  height = 70, width = 75, mines = 800;
+		long row = ChunkedField.TILE, col = ChunkedField.TILE-1;
+		boolean[][] mine = new boolean[height][width];
+
+		/*Find the mines: Open each position on its own copy of the board.*/
+		for (int r=0; r<height; r++)
+		{
+			for (int c=0; c<width; c++)
+			{
+				ChunkedField probe = new ChunkedField(height, width, mines, 3);
+				probe.open(row, col);
+				probe.open(r, c);
+				mine[r][c] = probe.isLost();
+			}
+		}
+
+		msg = "Open all positions without mine: Won";
+		ChunkedField field = new ChunkedField(height, width, mines, 3);
+		field.open(row, col); // same first move, same mines.
+		for (int r=0; r<height; r++)
+		{
+			for (int c=0; c<width; c++)
+			{
+				if (!mine[r][c])
+					field.open(r, c);
+			}
+		}
+		assertEquals(msg, false, field.isLost());
+		assertEquals(msg, true, field.isWon());
+
+		for (int r=0; r<height; r++)
+		{
+			for (int c=0; c<width; c++)
+			{
+				if (mine[r][c])
+					continue;
+
+				int count = 0;
+				for (int nr=Math.max(0,r-1); nr<=r+1 && nr<height; nr++)
+					for (int nc=Math.max(0,c-1); nc<=c+1 && nc<width; nc++)
+						count += (mine[nr][nc]) ? 1 : 0;
+
+				msg = "Count at "+r+":"+c;
+				assertEquals(msg, count, field.onPosition(r, c));
+			}
+		}
+	}
+
+
+	@Test
+	public void testFirstMoveInEdgeTile()
+	{
+		int  height = 70, width = 75, mines = height*width-4; // all but the first move's neighbourhood.
+
+		msg = "First move in the corner of a partial tile: Only its neighbourhood stays without mines";
+		ChunkedField field = new ChunkedField(height, width, mines, 5);
+		field.open(height-1, width-1);
+		assertEquals(msg, false, field.isLost());
+		assertEquals(msg, 4, field.getOpened());
+
+		ChunkedField probe = new ChunkedField(height, width, mines, 5);
+		probe.open(height-1, width-1); // same first move, same mines.
+		probe.open(height-1, ChunkedField.TILE); // first column of the tile, next to the corner's row.
+		assertEquals(msg, true, probe.isLost());
+	}
+
+
+	@Test
+	public void testHugeField()
+	{
+		long size = 100000L;
+		ChunkedField field = new ChunkedField(size, size, size*size/5, 42);
+
+		msg = "More positions than int indices";
+		assertEquals(msg, size*size, field.size());
+
+		msg = "First move: Only touched tiles are allocated";
+		field.open(size/2, size/2);
+		assertEquals(msg, false, field.isLost());
+		MinesweeperTest.assertMin(msg, 9, field.getOpened());
+		MinesweeperTest.assertMax(msg, 100, field.getTiles());
+
+		msg = "Same seed, same board";
+		ChunkedField same = new ChunkedField(size, size, size*size/5, 42);
+		assertEquals(msg, field.getOpened(), same.open(size/2, size/2));
+
+		msg = "Mark far away";
+		assertEquals(msg, true, field.toggleMark(size-1, size-1));
+		assertEquals(msg, Field.State.MARKED, field.getState(size-1, size-1));
+		assertEquals(msg, 1, field.getMarked());
+
+		msg = "Outside of the field";
+		try
+		{
+			field.open(size, 0);
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{}
+	}
+}
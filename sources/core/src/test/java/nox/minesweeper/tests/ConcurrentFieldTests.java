@@ -0,0 +1,121 @@
+package nox.minesweeper.tests;
+
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import nox.minesweeper.logic.*;
+
+
+/**
+ * Class ConcurrentFieldTests.
+ * Run unit test to proove the field for many threads.
+ */
+public class ConcurrentFieldTests
+{
+	private String msg;
+
+
+	@Test
+	public void testSingleThread()
+	{
+		ConcurrentField field = new ConcurrentField(7, 8);
+		Field           plain = new Field(7, 8);
+		int[]           mines = {0, 20, 55};
+
+		field.fillMines(mines);
+		plain.fillMines(mines);
+
+		msg = "Toggle and open";
+		assertEquals(msg, true,  field.toggleMark(0));
+		assertEquals(msg, 0,     field.open(0).length);
+		assertEquals(msg, false, field.toggleMark(0));
+		assertEquals(msg, 0,     field.getMarked());
+
+		msg = "Same as Field";
+		assertEquals(msg, plain.open(30).length, field.open(30).length);
+		for (int i=0; i<field.size(); i++)
+		{
+			assertEquals(msg, plain.onPosition(i), field.onPosition(i));
+		}
+		assertEquals(msg, plain.isWon(), field.isWon());
+
+		msg = "Open a mine: Lost";
+		field.fillMines(mines);
+		field.open(0);
+		assertEquals(msg, true, field.isLost());
+	}
+
+
+	@Test
+	public void testManyThreads() throws InterruptedException
+	{
+		final int                height = 40, width = 50;
+		final ConcurrentField    field  = new ConcurrentField(height, width);
+		final Field              plain  = new Field(height, width);
+		final boolean[]          mine   = new boolean[height*width];
+		final AtomicIntegerArray opener = new AtomicIntegerArray(height*width); // openings by all threads.
+
+		plain.fillRandomly(height*width/8, plain.getNeighbourhood(height*width/2), new MinePlacer(5));
+		field.fillMines(plain.getMineIndices());
+		for (int m : plain.getMineIndices()) mine[m] = true;
+
+		Thread[] threads = new Thread[8];
+		for (int t=0; t<threads.length; t++)
+		{
+			final int seed = t;
+			threads[t] = new Thread()
+			{
+				@Override public void run()
+				{
+					Random random = new Random(seed);
+
+					for (int step=0; step<20000; step++)
+					{
+						int index = random.nextInt(field.size());
+
+						if (step%5 == 0) // mark (also positions with mines).
+							field.toggleMark(index);
+
+						else if (!mine[index]) // open only safe positions.
+							for (int opened : field.open(index)) opener.incrementAndGet(opened);
+					}
+				}
+			};
+		}
+
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join();
+
+		msg = "Every position was opened at most once, by one thread";
+		int open = 0, marked = 0;
+		for (int i=0; i<field.size(); i++)
+		{
+			MinesweeperTest.assertMax(msg, 1, opener.get(i));
+			assertEquals(msg, opener.get(i) == 1, field.getState(i) == Field.State.OPEN);
+
+			open   += (field.getState(i) == Field.State.OPEN)   ? 1 : 0;
+			marked += (field.getState(i) == Field.State.MARKED) ? 1 : 0;
+		}
+
+		msg = "Striped counters match the cells";
+		assertEquals(msg, false,  field.isLost());
+		assertEquals(msg, open,   field.getOpened());
+		assertEquals(msg, marked, field.getMarked());
+		assertNotEquals(msg, 0, open);
+
+		msg = "Counts are like on a single threaded field";
+		for (int i=0; i<field.size(); i++)
+		{
+			if (field.getState(i) != Field.State.OPEN)
+				continue;
+
+			plain.open(i);
+			assertEquals(msg, plain.onPosition(i), field.onPosition(i));
+		}
+	}
+}
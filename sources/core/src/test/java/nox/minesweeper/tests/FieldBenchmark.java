@@ -0,0 +1,249 @@
+package nox.minesweeper.tests;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import nox.minesweeper.logic.*;
+
+
+/**
+ * Class FieldBenchmark.
+ * Measure field operations on big fields.
+ * Run with main, this is not part of the unit tests.
+ */
+public class FieldBenchmark
+{
+	public static void main(String[] args) throws IOException
+	{
+		FieldBenchmark.openEmpty(1000, 1000, 20);
+		FieldBenchmark.openRanges(1000, 1000, 20);
+		FieldBenchmark.fillRandomly(100, 100, new double[]{.1, .5, .999}, 20);
+		FieldBenchmark.fillRandomly(1000, 1000, new double[]{.1, .5, .999}, 5);
+		FieldBenchmark.fillRandomly(2000, 2000, new double[]{.1, .5}, 5);
+		FieldBenchmark.loadMapped(10000, 10000, 20);
+		FieldBenchmark.forkAndMove(1000, 1000, 100000);
+		FieldBenchmark.openParallel(4000, 4000, 5);
+		FieldBenchmark.scans(new int[]{100, 1000, 10000}, 10);
+	}
+
+
+	/**
+	 * Print the measured time.
+	 * @param msg   what was measured.
+	 * @param nanos measured time for all runs.
+	 * @param runs  number of runs.
+	 */
+	private static void print(String msg, long nanos, int runs)
+	{
+		System.out.printf("%-45s %10.3f ms%n", msg, nanos*1e-6/runs);
+	}
+
+
+	/**
+	 * Open a field without any mine with one click (all positions will be opened).
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param runs   number of measured runs (after some warm up runs).
+	 */
+	protected static void openEmpty(int height, int width, int runs)
+	{
+		Field field = new Field(height, width);
+		long  start, sum = 0;
+
+		for (int r=-5; r<runs; r++) // warm up with negative r.
+		{
+			field.fillMines(new int[0]);
+
+			start = System.nanoTime();
+			int opened = field.open(field.size()/2).length;
+			sum  += (r<0) ? 0 : System.nanoTime() - start;
+
+			if (opened != field.size())
+				throw new IllegalStateException("Not all opened: "+opened);
+		}
+
+		print("Open empty "+height+"x"+width, sum, runs);
+	}
+
+
+	/**
+	 * Open a field without any mine with one click, visit the opened ranges.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param runs   number of measured runs (after some warm up runs).
+	 */
+	protected static void openRanges(int height, int width, int runs)
+	{
+		Field field  = new Field(height, width);
+		long  start, sum = 0;
+		int[] ranges = new int[1];
+
+		for (int r=-5; r<runs; r++) // warm up with negative r.
+		{
+			field.fillMines(new int[0]);
+
+			start = System.nanoTime();
+			int opened = field.open(field.size()/2, (from, to, wave) -> ranges[0]++);
+			sum  += (r<0) ? 0 : System.nanoTime() - start;
+
+			if (opened != field.size())
+				throw new IllegalStateException("Not all opened: "+opened);
+		}
+
+		print("Open empty in ranges "+height+"x"+width+" ("+ranges[0]/(runs+5)+" ranges)", sum, runs);
+	}
+
+
+	/**
+	 * Fill a field with different densities.
+	 * @param height    height of field.
+	 * @param width     width of field.
+	 * @param densities mines per position.
+	 * @param runs      number of measured runs (after some warm up runs).
+	 */
+	protected static void fillRandomly(int height, int width, double[] densities, int runs)
+	{
+		Field field = new Field(height, width);
+
+		for (double density : densities)
+		{
+			int  mines = (int) Math.min(field.size()-1, density*field.size());
+			long start, sum = 0;
+
+			for (int r=-5; r<runs; r++) // warm up with negative r.
+			{
+				start = System.nanoTime();
+				field.fillRandomly(mines, 0);
+				sum  += (r<0) ? 0 : System.nanoTime() - start;
+			}
+
+			print("Fill "+height+"x"+width+" with "+mines+" mines", sum, runs);
+		}
+	}
+
+
+	/**
+	 * Load a saved (memory-mapped) field and play one move on it.
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param runs   number of measured runs (after some warm up runs).
+	 * @throws IOException if the temporary file cannot be used.
+	 */
+	protected static void loadMapped(int height, int width, int runs) throws IOException
+	{
+		File  file  = File.createTempFile("benchmark", ".mines");
+		Field field = Field.map(file, height, width);
+		long  start, sum = 0;
+
+		file.deleteOnExit();
+		field.fillMines(new int[]{0, 2*width+2});
+		field.flush();
+
+		for (int r=-5; r<runs; r++) // warm up with negative r.
+		{
+			start = System.nanoTime();
+			field = Field.load(file);
+			field.toggleMark(0);
+			field.open(width+1);
+			sum  += (r<0) ? 0 : System.nanoTime() - start;
+		}
+
+		print("Load mapped "+height+"x"+width+" and move", sum, runs);
+		file.delete();
+	}
+
+
+	/**
+	 * Fork a field and play one move on the fork (speculative move).
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param runs   number of measured runs (after some warm up runs).
+	 */
+	protected static void forkAndMove(int height, int width, int runs)
+	{
+		Field field = new Field(height, width);
+		long  start, sum = 0;
+
+		field.fillRandomly(field.size()/5, 0);
+		field.open(0);
+
+		for (int r=-1000; r<runs; r++) // warm up with negative r.
+		{
+			start = System.nanoTime();
+			Field fork = field.fork();
+			fork.toggleMark((r & 0xFFFF) * 13 % field.size());
+			sum  += (r<0) ? 0 : System.nanoTime() - start;
+		}
+
+		print("Fork "+height+"x"+width+" and mark", sum, runs);
+	}
+
+
+	/**
+	 * Open a field without any mine with one click, sequential and
+	 * in parallel with 1 to N threads (N: available processors, at least 4).
+	 * @param height height of field.
+	 * @param width  width of field.
+	 * @param runs   number of measured runs (after some warm up runs).
+	 */
+	protected static void openParallel(int height, int width, int runs)
+	{
+		Field field   = new Field(height, width);
+		int   threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		for (int t=0; t<=threads; t++) // t=0: sequential.
+		{
+			ForkJoinPool pool = (t>0) ? new ForkJoinPool(t) : null;
+			long         start, sum = 0;
+
+			field.setParallelFill((t>0) ? 1 : Integer.MAX_VALUE, pool);
+
+			for (int r=-2; r<runs; r++) // warm up with negative r.
+			{
+				field.fillMines(new int[0]);
+
+				start = System.nanoTime();
+				field.open(field.size()/2);
+				sum  += (r<0) ? 0 : System.nanoTime() - start;
+			}
+
+			print("Open empty "+height+"x"+width+", "+((t>0) ? t+" threads" : "sequential"), sum, runs);
+
+			if (pool != null) pool.shutdown();
+		}
+	}
+
+
+	/**
+	 * Scan whole fields (10% mines, some marked) for mines and states.
+	 * @param sides side lengths of the (square) fields.
+	 * @param runs  number of measured runs (after some warm up runs).
+	 */
+	protected static void scans(int[] sides, int runs)
+	{
+		for (int side : sides)
+		{
+			Field field = new Field(side, side);
+			long  mines = 0, marked = 0, start;
+
+			field.fillRandomly(field.size()/10, 0);
+			for (int i=0; i<field.size(); i+=100) field.toggleMark(i);
+
+			for (int r=-5; r<runs; r++) // warm up with negative r.
+			{
+				start  = System.nanoTime();
+				field.getMineIndices();
+				mines += (r<0) ? 0 : System.nanoTime() - start;
+
+				start   = System.nanoTime();
+				field.getWithState(Field.State.MARKED, 0);
+				marked += (r<0) ? 0 : System.nanoTime() - start;
+			}
+
+			print("Scan "+side+"x"+side+" for mines", mines, runs);
+			print("Scan "+side+"x"+side+" for marked", marked, runs);
+		}
+	}
+}
@@ -4,11 +4,17 @@ package nox.minesweeper.tests;
 import org.junit.Before;
 import org.junit.After;
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
 import java.util.ArrayList;
 
 import nox.minesweeper.logic.*;
@@ -106,6 +112,638 @@ public class FieldTests
 	}
 
 
+	@Test
+	public void testPlacedMines()
+	{
+		int[] excluded;
+
+		msg = "Same seed: Same mines";
+		field.fillRandomly(mines=20, new int[0], new MinePlacer(42));
+		int[] first = field.getMineIndices();
+		field.fillRandomly(mines, new int[0], new MinePlacer(42));
+		assertArrayEquals(msg, first, field.getMineIndices());
+
+		excluded = field.getNeighbourhood(width+1);
+		for (mines=0; mines<=field.size()-excluded.length; mines++)
+		{
+			msg = "Place "+mines+" mines, not in the first click's neighbourhood";
+			field.fillRandomly(mines, excluded, new MinePlacer());
+			assertEquals(msg, mines, field.getMines());
+			assertEquals(msg, mines, field.getMineIndices().length);
+
+			for (int m : field.getMineIndices())
+			{
+				for (int e : excluded) assertNotEquals(msg, e, m);
+			}
+		}
+
+		msg = "Too many mines for the allowed positions";
+		try
+		{
+			field.fillRandomly(mines, excluded, new MinePlacer());
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{}
+	}
+
+
+	@Test
+	public void testMappedField() throws IOException
+	{
+		File file = File.createTempFile("field", ".mines");
+		file.deleteOnExit();
+
+		msg = "New mapped field: Closed and without mines";
+		Field mapped = Field.map(file, height, width);
+		assertEquals(msg, field.size(), mapped.size());
+		assertEquals(msg, 0, mapped.getMines());
+		assertEquals(msg, Field.State.CLOSED, mapped.getState(0));
+
+		msg = "Loaded field: Same mines, states and counters";
+		mapped.fillMines(new int[]{0, field.size()-1});
+		mapped.toggleMark(0);
+		mapped.open(width+1);
+		mapped.flush();
+
+		Field loaded = Field.load(file);
+		assertEquals(msg, height, loaded.getHeight());
+		assertEquals(msg, width,  loaded.getWidth());
+		assertArrayEquals(msg, mapped.getMineIndices(), loaded.getMineIndices());
+		assertEquals(msg, mapped.getMines(),  loaded.getMines());
+		assertEquals(msg, mapped.getMarked(), loaded.getMarked());
+		assertEquals(msg, mapped.getOpened(), loaded.getOpened());
+		assertEquals(msg, mapped.print(),     loaded.print());
+
+		msg = "Loaded field can be played on";
+		loaded.open(field.size()-1);
+		assertEquals(msg, true, loaded.isLost());
+		assertEquals(msg, true, Field.load(file).isLost());
+
+		msg = "Invalid indices on mapped field";
+		try
+		{
+			loaded.onPosition(-1);
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{}
+	}
+
+
+	@Test
+	public void testFork()
+	{
+		field.fillMines(new int[]{0});
+		field.toggleMark(field.size()-1);
+
+		msg = "Fork: Same mines, states and counters";
+		Field fork = field.fork();
+		assertArrayEquals(msg, field.getMineIndices(), fork.getMineIndices());
+		assertEquals(msg, field.print(),     fork.print());
+		assertEquals(msg, field.getMarked(), fork.getMarked());
+
+		msg = "Moves on the fork don't change the field";
+		fork.toggleMark(field.size()-1);
+		fork.open(field.size()/2);
+		assertEquals(msg, field.size()-1, fork.getOpened());
+		assertEquals(msg, true, fork.isWon());
+		assertEquals(msg, 0, field.getOpened());
+		assertEquals(msg, 1, field.getMarked());
+		assertEquals(msg, Field.State.MARKED, field.getState(field.size()-1));
+
+		msg = "Moves on the field don't change the fork";
+		field.open(0);
+		assertEquals(msg, true,  field.isLost());
+		assertEquals(msg, false, fork.isLost());
+		assertEquals(msg, Field.State.CLOSED, fork.getState(0));
+
+		msg = "Fork of a fork";
+		Field second = fork.fork();
+		second.fillMines(new int[0]);
+		assertEquals(msg, 1, fork.getMines());
+		assertEquals(msg, true, fork.isWon());
+		assertEquals(msg, 0, second.getMines());
+	}
+
+
+	/**
+	 * Count the open positions of a frame.
+	 * @param frame frame to scan.
+	 * @return number of open positions.
+	 */
+	private static int openIn(Frame frame)
+	{
+		int open = 0;
+		for (int i=0; i<frame.size(); i++)
+		{
+			open += (frame.getState(i) == Field.State.OPEN) ? 1 : 0;
+		}
+		return open;
+	}
+
+
+	@Test
+	public void testFrames() throws InterruptedException
+	{
+		msg = "Not publishing: No frame";
+		assertEquals(msg, null, field.getFrame());
+
+		msg = "Frame keeps its move, also after further moves";
+		field.setPublishing(true);
+		field.fillMines(new int[]{0});
+		Frame before = field.getFrame();
+		field.open(field.size()/2);
+		Frame after  = field.getFrame();
+		MinesweeperTest.assertMin(msg, before.version+1, after.version);
+		assertEquals(msg, 0, openIn(before));
+		assertEquals(msg, field.size()-1, openIn(after));
+		assertEquals(msg, true, after.won);
+		assertEquals(msg, 1, after.onPosition(1));
+
+		msg = "Concurrent reader: Only complete moves";
+		final Field big   = new Field(300, 300);
+		final int[] fails = {0};
+		big.setPublishing(true);
+
+		Thread reader = new Thread()
+		{
+			@Override public void run()
+			{
+				long last = 0;
+				while (!this.isInterrupted())
+				{
+					Frame f = big.getFrame();
+					if (f.version < last || openIn(f) != f.opened + ((f.lost) ? 1 : 0))
+						fails[0]++;
+					last = f.version;
+				}
+			}
+		};
+		reader.start();
+
+		for (int run=0; run<50; run++)
+		{
+			big.fillRandomly(run*10, 0);
+			big.open(0);
+			big.toggleMark(big.size()-1);
+		}
+		reader.interrupt();
+		reader.join();
+
+		assertEquals(msg, 0, fails[0]);
+
+		msg = "Last frame shows the field";
+		assertEquals(msg, big.getOpened(), big.getFrame().opened);
+		for (int i=0; i<big.size(); i++)
+		{
+			assertEquals(msg, big.onPosition(i), big.getFrame().onPosition(i));
+		}
+	}
+
+
+	@Test
+	public void testParallelFill()
+	{
+		Field big = new Field(300, 400);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		for (int run=0; run<5; run++)
+		{
+			big.fillRandomly(run*300, big.getNeighbourhood(0), new MinePlacer(run));
+			big.toggleMark(big.size()-1);
+
+			Field parallel = big.fork();
+			parallel.setParallelFill(1+run*100, pool);
+
+			msg = "Run "+run+": Same positions opened as sequential";
+			int[] sequential = big.fork().open(0);
+			int[] opened     = parallel.open(0);
+			Arrays.sort(sequential);
+			Arrays.sort(opened);
+			assertArrayEquals(msg, sequential, opened);
+			assertEquals(msg, sequential.length, parallel.getOpened());
+			assertEquals(msg, Field.State.MARKED, parallel.getState(big.size()-1));
+		}
+		pool.shutdown();
+
+		msg = "Invalid threshold";
+		try
+		{
+			big.setParallelFill(0, null);
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{}
+	}
+
+
+	@Test
+	public void testCounts()
+	{
+		int[][] sizes = {{1,1}, {1,9}, {9,1}, {2,2}, {7,8}, {33,17}};
+
+		for (int[] size : sizes)
+		{
+			Field f = new Field(size[0], size[1]);
+
+			for (int run=0; run<10; run++)
+			{
+				boolean[] mine = new boolean[f.size()];
+
+				f.fillRandomly(run*f.size()/10, new int[0], new MinePlacer(run));
+				for (int m : f.getMineIndices()) mine[m] = true;
+
+				for (int i=0; i<f.size(); i++)
+				{
+					if (mine[i])
+						continue;
+
+					int count = 0;
+					for (int n : f.getNeighbours(i)) count += (mine[n]) ? 1 : 0;
+
+					msg = size[0]+"x"+size[1]+", run "+run+": Count of "+i;
+					f.open(i);
+					assertEquals(msg, count, f.onPosition(i));
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void testScans()
+	{
+		Field big = new Field(61, 67); // not a multiple of eight.
+
+		for (int run=0; run<10; run++)
+		{
+			big.fillRandomly(run*big.size()/10, new int[0], new MinePlacer(run));
+			for (int i=0; i<big.size(); i+=3) // some opened and marked.
+			{
+				if (i%2 == 0) big.toggleMark(i);
+				else          big.open(i);
+			}
+
+			for (Field.State state : Field.State.values())
+			{
+				int[] expected = new int[big.size()];
+				int   len      = 0;
+
+				for (int i=0; i<big.size(); i++)
+				{
+					if (big.getState(i) == state) expected[len++] = i;
+				}
+
+				msg = "Run "+run+": Scanned "+state+" like single positions";
+				assertArrayEquals(msg, Arrays.copyOf(expected, len), big.getWithState(state, 0));
+			}
+		}
+	}
+
+
+	@Test
+	public void testStateSets()
+	{
+		Field big = new Field(97, 101); // some pages, the last one not full.
+		big.fillRandomly(big.size()/8, new int[0], new MinePlacer(5));
+
+		for (int i=0; i<big.size(); i+=7) // some opened and marked.
+		{
+			if (i%3 == 0) big.toggleMark(i);
+			else if (big.onPosition(i) != Field.VALUE_MINE_ON_POS || i%2 == 0) big.open(i);
+		}
+
+		Field fork = big.fork();
+		for (int i=0; i<fork.size(); i+=14) // changed after the fork.
+		{
+			fork.toggleMark(i);
+		}
+
+		for (Field f : new Field[]{big, fork})
+		{
+			for (Field.State state : Field.State.values())
+			{
+				for (int min=0; min<3; min++)
+				{
+					int[] expected = new int[f.size()];
+					int   len      = 0;
+
+					for (int i=0; i<f.size(); i++)
+					{
+						if (f.getState(i) == state && (state != Field.State.OPEN || min < 1 || f.onPosition(i) >= min))
+							expected[len++] = i;
+					}
+
+					final int[] visited = new int[1];
+					f.forEachWithState(state, min, index -> visited[0]++);
+
+					msg = "Set of "+state+" (min "+min+") like single positions";
+					assertArrayEquals(msg, Arrays.copyOf(expected, len), f.getWithState(state, min));
+					assertEquals(msg, len, visited[0]);
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void testClear()
+	{
+		Field first  = new Field(97, 101); // some pages, the last one not full.
+		Field second = new Field(97, 101);
+
+		first.fillRandomly(1000, new int[0], new MinePlacer(3));
+		first.open(0);
+		first.toggleMark(first.size()-1);
+		Field fork = first.fork();
+		String forked = fork.print();
+
+		msg = "Cleared field is closed, unmarked and without mines";
+		first.fillMines(new int[0]);
+		second.fillMines(new int[0]);
+		assertEquals(msg, first.size(), first.getWithState(Field.State.CLOSED, 0).length);
+		assertEquals(msg, 0, first.getMineIndices().length);
+		assertEquals(msg, 0, first.getMarked() + first.getOpened() + first.getMines());
+
+		msg = "Cleared fields don't share their changes";
+		first.fillMines(new int[]{5, first.size()-2});
+		first.toggleMark(4096);
+		assertEquals(msg, 0, second.getMineIndices().length);
+		assertEquals(msg, Field.State.CLOSED, second.getState(4096));
+		assertEquals(msg, Field.State.MARKED, first.getState(4096));
+		assertEquals(msg, forked, fork.print());
+	}
+
+
+	@Test
+	public void testBoards()
+	{
+		Field small = new Field(9, 11);
+		small.fillMines(new int[]{12, 30, 31, 57, 70, 88});
+		small.open(0);
+		small.toggleMark(12);
+		small.setPublishing(true);
+
+		Board[] boards = {small, small.getFrame(), Solver.INSTANCE.parseFieldInfo(small.oneLine())};
+
+		for (Board b : boards)
+		{
+			msg = "Same view in "+b;
+			assertEquals(msg, small.getHeight(), b.getHeight());
+			assertEquals(msg, small.getWidth(),  b.getWidth());
+			assertSame(msg, small.getTopology(), b.getTopology());
+
+			for (int i=0; i<small.size(); i++)
+			{
+				assertEquals(msg+" at "+i, small.getState(i),   b.getState(i));
+				assertEquals(msg+" at "+i, small.onPosition(i), b.onPosition(i));
+			}
+
+			msg = "Same solver moves in "+b;
+			assertArrayEquals(msg,
+					Solver.INSTANCE.possibleUnsatisfied(small),
+					Solver.INSTANCE.possibleUnsatisfied(b));
+
+			for (int i=0; i<small.size(); i++)
+			{
+				Moves expected = Solver.INSTANCE.nextMoves(small, i, false);
+				Moves moves    = Solver.INSTANCE.nextMoves(b, i, false);
+
+				assertEquals(msg+" at "+i, expected.size(), moves.size());
+				for (int m=0; m<moves.size(); m++)
+				{
+					assertEquals(msg, expected.kind(m),  moves.kind(m));
+					assertEquals(msg, expected.index(m), moves.index(m));
+				}
+			}
+		}
+	}
+
+
+	@Test
+	public void testOpenRanges()
+	{
+		Field big = new Field(41, 53);
+
+		for (int run=0; run<20; run++)
+		{
+			big.fillRandomly(run*big.size()/100, new int[0], new MinePlacer(run));
+			for (int i=run; i<big.size(); i+=37) // some marks block the opening.
+			{
+				big.toggleMark(i);
+			}
+
+			final Field  ranged  = big.fork();
+			final int    index   = (run*997) % big.size();
+			final int[]  opened  = new int[ranged.size()];
+			final int[]  last    = {0, 0}; // wave, opened positions.
+
+			int[] expected = big.open(index);
+			int   count    = ranged.open(index, (from, to, wave) ->
+			{
+				assertEquals(msg, from/ranged.getWidth(), (to-1)/ranged.getWidth()); // one row.
+				MinesweeperTest.assertMax(msg, wave, last[0]);
+				last[0] = wave;
+
+				for (int i=from; i<to; i++) opened[last[1]++] = i;
+			});
+
+			int[] got = Arrays.copyOf(opened, last[1]);
+			Arrays.sort(expected);
+			Arrays.sort(got);
+
+			msg = "Run "+run+": Ranges open like the queue";
+			assertArrayEquals(msg, expected, got);
+			assertEquals(msg, expected.length, count);
+			assertEquals(msg, big.getOpened(), ranged.getOpened());
+			assertEquals(msg, big.isLost(), ranged.isLost());
+			assertEquals(msg, 0, ranged.open(index, (from, to, wave) -> fail("Opened again.")));
+		}
+	}
+
+
+	@Test
+	public void testMoves()
+	{
+		Field small = new Field(4, 4);
+		small.fillMines(new int[]{0});
+
+		msg = "Invalid move: Nothing applied";
+		try
+		{
+			small.apply(new Moves().mark(3).open(99));
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			assertEquals(msg, 0, small.getMarked());
+		}
+
+		msg = "Open, mark and chord in one batch";
+		Delta change = small.apply(new Moves().open(5).chord(5).mark(0).chord(5).open(0));
+		int[] opened = change.opened.clone();
+		Arrays.sort(opened);
+
+		assertArrayEquals(msg, new int[]{1,2,3,4,5,6,7,8,9,10,11,12,13,14,15}, opened);
+		assertArrayEquals(msg, new int[]{0}, change.toggled);
+		assertEquals(msg, true,  small.isWon());
+		assertEquals(msg, false, small.isLost());
+
+		msg = "Batch in a game: Filled on the first open";
+		Game game = new Game(9, 9, 10);
+		Delta first = game.apply(new Moves().toggle(80).toggle(80).open(40));
+
+		assertEquals(msg, 10, game.field.getMines());
+		assertEquals(msg, Field.State.OPEN, game.field.getState(40));
+		assertSame(msg, first, game.getLastChange());
+		assertArrayEquals(msg, new int[]{80,80}, first.toggled);
+	}
+
+
+	@Test
+	public void testExport()
+	{
+		Field small = new Field(5, 7);
+		small.setPublishing(true);
+		small.fillMines(new int[]{0, 12});
+		small.open(6);
+		small.toggleMark(0);
+		small.open(12);
+
+		msg = "Export: Codes like onPosition, row by row";
+		byte[] codes = new byte[2 + 3*4];
+		small.export(1, 2, 3, 4, codes, 2);
+
+		for (int r=0; r<3; r++)
+			for (int c=0; c<4; c++)
+				assertEquals(msg, code(small.onPosition(1+r, 2+c)), codes[2 + r*4 + c]);
+
+		msg = "Export: Frame like the field";
+		byte[] all   = new byte[small.size()];
+		byte[] frame = new byte[small.size()];
+		small.export(0, 0, small.getHeight(), small.getWidth(), all, 0);
+		small.getFrame().export(0, 0, small.getHeight(), small.getWidth(), frame, 0);
+		assertArrayEquals(msg, all, frame);
+		assertEquals(msg, Field.CODE_MARKED, all[0]);
+		assertEquals(msg, Field.CODE_MINE,   all[12]);
+		assertEquals(msg, Field.CODE_CLOSED, all[1]);
+		assertEquals(msg, 1,                 all[6]);
+
+		msg = "Export: Not in the field or too short";
+		for (int[] bad : new int[][]{{-1,0,1,1,1}, {0,5,1,3,3}, {4,0,2,1,2}, {0,0,2,2,3}})
+		{
+			try
+			{
+				small.export(bad[0], bad[1], bad[2], bad[3], new byte[bad[4]], 0);
+				fail(msg);
+			}
+			catch (ArrayIndexOutOfBoundsException e)
+			{
+				// expected.
+			}
+		}
+	}
+
+
+	@Test
+	public void testFrontier()
+	{
+		Game  game = new Game(13, 17, 30);
+		Field big  = game.field;
+
+		msg = "Frontier: Empty before the first move";
+		assertArrayEquals(msg, new int[0], big.getFrontier());
+		assertEquals(msg, 3, big.getClosedAround(0));
+
+		msg = "Frontier: Counters kept with every move";
+		game.apply(new Moves().open(100));
+
+		for (int run=0; run<60 && !big.isLost() && !big.isWon(); run++)
+		{
+			int index = (run*97 + 11) % big.size();
+
+			switch (run % 4)
+			{
+				case 0:  game.apply(new Moves().toggle(index)); break;
+				case 1:  game.apply(new Moves().chord(index));  break;
+				case 2:  if (game.canUndo()) game.undo();       break;
+				default: Solver.INSTANCE.checkPosition(big, index); break;
+			}
+			assertCounted(msg+" after run "+run, big);
+		}
+
+		msg = "Frontier: Counted again after a restart";
+		big.fillMines(new int[]{0});
+		big.toggleMark(1);
+		big.open(big.size()-1);
+		assertCounted(msg, big);
+		assertArrayEquals(msg, new int[]{big.getWidth(), big.getWidth()+1}, big.getFrontier());
+		assertEquals(msg, 1, big.getClosedAround(big.getWidth()));
+		assertEquals(msg, false, big.isFrontier(2));
+
+		msg = "Frontier: Fork counts its own";
+		Field fork = big.fork();
+		fork.toggleMark(1);
+		assertCounted(msg, fork);
+		assertCounted(msg, big);
+		assertEquals(msg, 0, fork.getMarkedAround(2));
+		assertEquals(msg, 1, big.getMarkedAround(2));
+		assertEquals(msg, 1, fork.getClosedAround(2));
+	}
+
+
+	/**
+	 * Compare the kept counters and frontier with counted ones.
+	 * @param msg message on failure.
+	 * @param f   field to check.
+	 */
+	private static void assertCounted(String msg, Field f)
+	{
+		int[] frontier = new int[f.size()];
+		int   len      = 0;
+
+		for (int i=0; i<f.size(); i++)
+		{
+			int marked = 0;
+			int closed = 0;
+
+			for (int n : f.getNeighbours(i))
+			{
+				marked += (f.getState(n) == Field.State.MARKED) ? 1 : 0;
+				closed += (f.getState(n) == Field.State.CLOSED) ? 1 : 0;
+			}
+
+			assertEquals(msg+" marked at "+i, marked, f.getMarkedAround(i));
+			assertEquals(msg+" closed at "+i, closed, f.getClosedAround(i));
+
+			int value = f.onPosition(i);
+			if (f.getState(i) == Field.State.OPEN && 0 < value && value < Field.VALUE_MARKED && 0 < closed)
+				frontier[len++] = i;
+
+			assertEquals(msg+" frontier at "+i, len > 0 && frontier[len-1] == i, f.isFrontier(i));
+		}
+		assertArrayEquals(msg, Arrays.copyOf(frontier, len), f.getFrontier());
+	}
+
+
+	/**
+	 * Get the display code for a value of onPosition.
+	 * @param value value of the position.
+	 * @return display code (see Field.export).
+	 */
+	private static byte code(int value)
+	{
+		switch (value)
+		{
+			case Field.VALUE_MINE_ON_POS: return Field.CODE_MINE;
+			case Field.VALUE_MARKED:      return Field.CODE_MARKED;
+			case Field.VALUE_CLOSED:      return Field.CODE_CLOSED;
+			default:                      return (byte) value;
+		}
+	}
+
+
 	@Test
 	public void testNeighbours()
 	{
@@ -123,6 +761,17 @@ public class FieldTests
 		{
 			assertEquals(msg, true, field.getNeighbours(1,1).length == 8);
 		}
+
+		msg = "Get neighbours of the bottom row (second position)";
+		assertEquals(msg, 5, field.getNeighbours(height-1,1).length);
+		for (int n : field.getNeighbours(height-1,1))
+		{
+			MinesweeperTest.assertMax(msg, field.size()-1, n);
+		}
+
+		msg = "Fields of the same size share their topology";
+		assertSame(msg, field.getTopology(), new Field(height, width).getTopology());
+		assertNotEquals(msg, field.getTopology(), new Field(width, height).getTopology());
 	}
 
 
@@ -225,6 +874,79 @@ public class FieldTests
 	}
 
 
+	@Test
+	public void testOpenRegion()
+	{
+		msg = "Open empty field: Everything opened with one click";
+		field.fillMines(new int[0]);
+		assertEquals(msg, field.size(), field.open(field.size()/2).length);
+		assertEquals(msg, true, field.isWon());
+
+		msg = "Open field with one mine: Everything except the mine and the marked";
+		field.fillMines(new int[]{0});
+		field.toggleMark(field.size()-1);
+		assertEquals(msg, field.size()-2, field.open(field.size()/2).length);
+		assertEquals(msg, Field.State.CLOSED, field.getState(0));
+		assertEquals(msg, Field.State.MARKED, field.getState(field.size()-1));
+		assertEquals(msg, 1, field.onPosition(1));
+	}
+
+
+	/**
+	 * Check if the field is won, by scanning all positions.
+	 * @param f field to check.
+	 * @return true, if all positions without mines are open and no mine.
+	 */
+	private static boolean isWonByScan(Field f)
+	{
+		java.util.Set<Integer> mines = new java.util.HashSet<Integer>();
+		for (int m : f.getMineIndices()) mines.add(m);
+
+		for (int i=0; i<f.size(); i++)
+		{
+			if (f.getState(i) == Field.State.OPEN && mines.contains(i))
+				return false; // opened mine.
+
+			if (f.getState(i) != Field.State.OPEN && !mines.contains(i))
+				return false; // still closed.
+		}
+		return true;
+	}
+
+
+	@Test
+	public void testWonCounter()
+	{
+		for (int run=0; run<50; run++)
+		{
+			mines = run % 10;
+			field.fillRandomly(mines, 0);
+
+			for (int step=0; !field.isLost() && !field.isWon(); step++)
+			{
+				int index = (int) (Math.random()*field.size());
+
+				msg = "Run "+run+", step "+step+": Counted like scanned";
+				if (step%7 == 6) field.toggleMark(index);
+				else             field.open(index);
+
+				assertEquals(msg+" (won)", isWonByScan(field), field.isWon());
+				assertEquals(msg+" (opened)",
+						field.getWithState(Field.State.OPEN,0).length
+						- ((field.isLost()) ? 1 : 0),
+						field.getOpened());
+			}
+		}
+
+		msg = "Revealed field is lost, not won";
+		field.fillRandomly(3, 0);
+		field.open(0);
+		field.reveal();
+		assertEquals(msg, false, field.isWon());
+		assertEquals(msg, isWonByScan(field), field.isWon());
+	}
+
+
 	@Test
 	public void testToggleMarks()
 	{
@@ -4,12 +4,18 @@ package nox.minesweeper.tests;
 import org.junit.Before;
 import org.junit.After;
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 
 import static java.lang.Thread.sleep;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import nox.minesweeper.logic.*;
 
 
@@ -140,6 +146,367 @@ public class GameStatsTests
 	}
 
 
+	@Test
+	public void testLastChange()
+	{
+		int[] opened;
+
+		msg = "Restarted: Everything changed";
+		assertEquals(msg, true, this.game.getLastChange().restart);
+
+		msg = "First move: Delta contains the newly opened";
+		opened = this.game.open(0);
+		assertEquals(msg, opened.length, this.game.getLastChange().opened.length);
+		assertEquals(msg, opened.length, this.game.discovered());
+
+		for (int i=0; i<this.game.field.size() && this.game.isRunning(); i++)
+		{
+			if (this.game.field.getState(i) != Field.State.CLOSED)
+				continue;
+
+			msg = "Toggle "+i+": Only one changed";
+			this.game.toggleMark(i);
+			assertEquals(msg, 1, this.game.getLastChange().size());
+			assertEquals(msg, i, this.game.getLastChange().toggled[0]);
+			this.game.toggleMark(i);
+
+			msg = "Open "+i+": Discovered like opened and marked";
+			this.game.open(i);
+			MinesweeperTest.assertMin(msg, 1, this.game.getLastChange().size());
+			assertEquals(msg,
+					this.game.field.getWithState(Field.State.OPEN,0).length
+					+ this.game.field.getMarked(),
+					this.game.discovered());
+		}
+
+		msg = "Finished: Nothing changes anymore";
+		this.game.open(0);
+		assertEquals(msg, true, this.game.getLastChange().isEmpty());
+	}
+
+
+	@Test
+	public void testPublisher()
+	{
+		final List<Delta>    received = new ArrayList<Delta>();
+		final List<Runnable> later    = new ArrayList<Runnable>(); // slow listener's work.
+
+		DeltaPublisher.Listener collect = new DeltaPublisher.Listener()
+		{
+			@Override public void onDeltas(Delta[] batch)
+			{
+				for (Delta d : batch) received.add(d);
+			}
+		};
+		Executor direct = new Executor()
+		{
+			@Override public void execute(Runnable r) { r.run(); }
+		};
+		Executor slow   = new Executor()
+		{
+			@Override public void execute(Runnable r) { later.add(r); }
+		};
+
+		msg = "Every move with changes is published";
+		DeltaPublisher.Subscription s = this.game.getPublisher().subscribe(collect, direct, 8);
+		this.game.toggleMark(0);
+		this.game.toggleMark(0);
+		this.game.open(0);
+		assertEquals(msg, 3, received.size());
+		assertEquals(msg, 0, received.get(0).toggled[0]);
+		assertEquals(msg, this.game.getLastChange().opened.length, received.get(2).opened.length);
+
+		msg = "Cancelled: Nothing is published";
+		s.cancel();
+		this.game.restart();
+		assertEquals(msg, 3, received.size());
+		assertEquals(msg, 0, this.game.getPublisher().size());
+
+		msg = "Slow listener: Pending deltas in one batch";
+		received.clear();
+		this.game.getPublisher().subscribe(collect, slow, 2);
+		this.game.toggleMark(0);
+		this.game.toggleMark(1);
+		assertEquals(msg, 1, later.size());
+		later.remove(0).run();
+		assertEquals(msg, 2, received.size());
+
+		msg = "Slow listener: Too many pending, replaced by restart";
+		received.clear();
+		for (int i=0; i<5; i++) this.game.toggleMark(2);
+		later.remove(0).run();
+		assertEquals(msg, 1, received.size());
+		assertEquals(msg, true, received.get(0).restart);
+	}
+
+
+	@Test
+	public void testBoardId()
+	{
+		Game parsed;
+
+		msg = "Same board id before the first move";
+		parsed = Game.parseBoardId(this.game.getBoardId());
+		assertEquals(msg, this.game.getBoardId(), parsed.getBoardId());
+		assertEquals(msg, this.game, parsed);
+
+		msg = "Board id recreates the mines";
+		this.game.open(width+1);
+		parsed = Game.parseBoardId(this.game.getBoardId());
+		assertEquals(msg, this.game.getBoardId(), parsed.getBoardId());
+		assertArrayEquals(msg, this.game.field.getMineIndices(), parsed.field.getMineIndices());
+		assertEquals(msg, false, parsed.isRunning());
+
+		msg = "Same first move on recreated board";
+		parsed.open(width+1);
+		assertArrayEquals(msg,
+				this.game.field.getWithState(Field.State.OPEN,0),
+				parsed.field.getWithState(Field.State.OPEN,0));
+
+		msg = "Printed with the game";
+		assertEquals(msg, true, this.game.toString(true).contains(this.game.getBoardId()));
+
+		msg = "Invalid board id";
+		try
+		{
+			Game.parseBoardId("7:8:9");
+			fail(msg);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{}
+	}
+
+
+	@Test
+	public void testOpenTwice()
+	{
+		this.game.field.fillMines(new int[]{10,13,20,27,34,41,44,50,53}); // not won with the first move.
+		this.game.open(0);
+
+		int    discovered = this.game.discovered();
+		String board      = this.game.field.print();
+
+		msg = "Open an open position again: Nothing changes";
+		for (int i=0; i<2; i++)
+		{
+			assertArrayEquals(msg, new int[0], this.game.open(0));
+			assertEquals(msg, discovered, this.game.discovered());
+			assertEquals(msg, board, this.game.field.print());
+			assertEquals(msg, true, this.game.getLastChange().isEmpty());
+		}
+	}
+
+
+	@Test
+	public void testFirstMoveClearsMarks()
+	{
+		Game fresh = new Game(10, 10, 30);
+		fresh.toggleMark(99);
+		fresh.open(0);
+
+		msg = "First move: The filling removes the marks, the delta contains them";
+		assertEquals(msg, 0, fresh.field.getMarked());
+		assertNotEquals(msg, Field.State.MARKED, fresh.field.getState(99));
+		assertArrayEquals(msg, new int[]{99}, fresh.getLastChange().toggled);
+		assertEquals(msg, fresh.field.getState(0), Field.State.OPEN);
+
+		msg = "First move in a batch: Removed marks before the batch's toggles";
+		fresh.restart();
+		fresh.toggleMark(99);
+		Delta change = fresh.apply(new Moves().toggle(98).open(0));
+		assertArrayEquals(msg, new int[]{99,98}, change.toggled);
+		assertEquals(msg, 1, fresh.field.getMarked());
+	}
+
+
+	@Test
+	public void testUndoRedo()
+	{
+		List<String> states = new ArrayList<String>();
+		int[]        mines;
+		int          safe, mine;
+
+		msg = "Nothing to undo before the first move";
+		assertEquals(msg, false, this.game.canUndo());
+		assertEquals(msg, Delta.NONE, this.game.undo());
+
+		this.game.field.fillMines(new int[]{10,13,20,27,34,41,44,50,53}); // not won with the first move.
+		states.add(this.snapshot());
+		this.game.open(0);
+		states.add(this.snapshot());
+
+		mines = this.game.field.getMineIndices();
+		mine  = mines[0];
+		safe  = -1;
+		for (int i=0; i<this.game.field.size() && safe<0; i++) // a closed position without mine.
+		{
+			if (this.game.field.getState(i) == Field.State.CLOSED && Arrays.binarySearch(mines, i) < 0)
+				safe = i;
+		}
+
+		this.game.toggleMark(mines[1]);
+		states.add(this.snapshot());
+
+		this.game.apply(new Moves().toggle(mines[2]).open(safe));
+		states.add(this.snapshot());
+
+		this.game.open(mine); // lost.
+		states.add(this.snapshot());
+		assertEquals(msg, true, this.game.field.isLost());
+
+		msg = "Undo every move";
+		for (int i=states.size()-2; 0<=i; i--)
+		{
+			Delta change = this.game.undo();
+			assertEquals(msg+" ("+i+")", states.get(i), this.snapshot());
+			assertEquals(msg, change, this.game.getLastChange());
+		}
+		assertEquals(msg, false, this.game.canUndo());
+
+		msg = "Redo every move";
+		for (int i=1; i<states.size(); i++)
+		{
+			this.game.redo();
+			assertEquals(msg+" ("+i+")", states.get(i), this.snapshot());
+		}
+		assertEquals(msg, false, this.game.canRedo());
+
+		msg = "A new move drops the undone moves";
+		this.game.undo();
+		this.game.undo();
+		this.game.toggleMark(mine);
+		assertEquals(msg, false, this.game.canRedo());
+		assertEquals(msg, true,  this.game.canUndo());
+
+		msg = "Restart forgets all moves";
+		this.game.restart();
+		assertEquals(msg, false, this.game.canUndo());
+	}
+
+
+	@Test
+	public void testUndoUnchanged()
+	{
+		this.game.field.fillMines(new int[]{10,13,20,27,34,41,44,50,53}); // not won with the first move.
+
+		String before = this.snapshot();
+		this.game.open(0);
+		String opened = this.snapshot();
+
+		msg = "Open an open position again: Not recorded";
+		this.game.open(0);
+		assertEquals(msg, opened, this.snapshot());
+		this.game.undo();
+		assertEquals(msg, before, this.snapshot());
+		assertEquals(msg, false, this.game.canUndo());
+		this.game.redo();
+		assertEquals(msg, opened, this.snapshot());
+
+		msg = "Lost: Only closed mines are revealed";
+		this.game.toggleMark(53);
+		String marked = this.snapshot();
+		this.game.open(10); // lost.
+		String lost = this.snapshot();
+		assertArrayEquals(msg, new int[]{10}, this.game.getLastChange().opened);
+		assertArrayEquals(msg, new int[]{13,20,27,34,41,44,50}, this.game.getLastChange().revealed);
+
+		msg = "Reveal again: Not recorded";
+		this.game.reveal();
+		assertEquals(msg, true, this.game.getLastChange().isEmpty());
+		assertEquals(msg, lost, this.snapshot());
+
+		msg = "Undo the lost move: The board before";
+		this.game.undo();
+		assertEquals(msg, marked, this.snapshot());
+		this.game.redo();
+		assertEquals(msg, lost, this.snapshot());
+	}
+
+
+	@Test
+	public void testUndoFillAndLoss()
+	{
+		Game fresh = new Game(5, 5, 3);
+
+		msg = "Undo the first move: The marks before the filling are back";
+		String before = snapshot(fresh);
+		fresh.toggleMark(3);
+		String marked = snapshot(fresh);
+		fresh.open(12);
+		String opened = snapshot(fresh);
+
+		fresh.undo();
+		assertEquals(msg, marked, snapshot(fresh));
+		assertEquals(msg, Field.State.MARKED, fresh.field.getState(3));
+		fresh.undo();
+		assertEquals(msg, before, snapshot(fresh));
+		fresh.redo();
+		assertEquals(msg, marked, snapshot(fresh));
+		fresh.redo();
+		assertEquals(msg, opened, snapshot(fresh));
+
+		msg = "Undo a reveal with all mines marked: Not lost anymore";
+		fresh = Game.parseBoardId("3:2:2:33pkxjl63ur47:5");
+		for (int m : fresh.field.getMineIndices())
+		{
+			fresh.toggleMark(m);
+		}
+		marked = snapshot(fresh);
+		fresh.reveal();
+		String lost = snapshot(fresh);
+		assertEquals(msg, true, fresh.field.isLost());
+
+		fresh.undo();
+		assertEquals(msg, marked, snapshot(fresh));
+		assertEquals(msg, false, fresh.field.isLost());
+		fresh.redo();
+		assertEquals(msg, lost, snapshot(fresh));
+
+		msg = "Lost, undone and lost again: Counted once";
+		fresh = Game.parseBoardId("3:2:2:33pkxjl63ur47:5");
+		int mine = fresh.field.getMineIndices()[0];
+		fresh.open(mine);
+		fresh.undo();
+		fresh.open(mine);
+		assertEquals(msg, true, fresh.field.isLost());
+		assertEquals(msg, 1, fresh.getStatistics().allGames());
+		assertEquals(msg, 1, fresh.getStatistics().countGamesWon(false));
+
+		msg = "Next board: Counted again";
+		fresh.restart();
+		fresh.open(0);
+		fresh.reveal();
+		assertEquals(msg, 2, fresh.getStatistics().allGames());
+	}
+
+
+	/**
+	 * Get the visible state of the game.
+	 * @return board, counters and end of the game as String.
+	 */
+	private String snapshot()
+	{
+		return snapshot(this.game);
+	}
+
+
+	/**
+	 * Get the visible state of a game.
+	 * @param game game to look at.
+	 * @return board, counters and end of the game as String.
+	 */
+	private static String snapshot(Game game)
+	{
+		return game.field.print()
+			+ " discovered "  + game.discovered()
+			+ " opened "      + game.field.getOpened()
+			+ " marked "      + game.field.getMarked()
+			+ " running "     + game.isRunning()
+			+ " lost "        + game.field.isLost()
+			+ " won "         + game.field.isWon();
+	}
+
+
 	@Test
 	public void testStatistics()
 	{
@@ -17,6 +17,8 @@ public class MinesweeperTest
 		Result result = JUnitCore.runClasses(
 				FieldTests.class
 				, GameStatsTests.class
+				, ConcurrentFieldTests.class
+				, ChunkedFieldTests.class
 				);
       for (Failure failure : result.getFailures())
 	  {